@@ -0,0 +1,188 @@
+package com.faforever.neroxis.generator;
+
+import com.faforever.neroxis.util.FileUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * On disk cache of exported map folders. Entries are addressed by a hash of the generator version and the decoded
+ * map name, which together fully determine the generated output. Every cached file is recorded in a manifest with
+ * its size and SHA-256 so corrupted entries are detected and dropped instead of served. The least recently served
+ * entries are evicted once the cache grows past its size limit. Every entry also keeps the summary printed when its map
+ * was generated, so a restored map reports the same details.
+ */
+public class GenerationCache {
+    private static final String MANIFEST = "manifest.txt";
+    private static final String SUMMARY = "summary.txt";
+    private static final String FILES = "files";
+    private static final String STAGING_SUFFIX = ".staging";
+    private final Path cacheFolder;
+    private final long maxSizeBytes;
+
+    public GenerationCache(Path cacheFolder, long maxSizeBytes) {
+        this.cacheFolder = cacheFolder;
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * Computes the cache key for a map name. The name arguments are decoded so equivalent spellings of a name share
+     * an entry
+     */
+    public static String getKey(String version, String mapName) {
+        HexFormat hexFormat = HexFormat.of();
+        String[] nameArgs = mapName.split("_");
+        StringBuilder keyBuilder = new StringBuilder(version);
+        for (int i = 4; i < nameArgs.length; ++i) {
+            keyBuilder.append('_').append(hexFormat.formatHex(GeneratedMapNameEncoder.decode(nameArgs[i])));
+        }
+        return hexFormat.formatHex(newDigest().digest(keyBuilder.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String copyWithDigest(Path source, Path target) throws IOException {
+        MessageDigest digest = newDigest();
+        Files.createDirectories(target.getParent());
+        try (InputStream inputStream = new DigestInputStream(Files.newInputStream(source), digest)) {
+            Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static List<CachedFile> readManifest(Path manifestPath) throws IOException {
+        List<CachedFile> cachedFiles = new ArrayList<>();
+        for (String line : Files.readAllLines(manifestPath, StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t", 3);
+            if (fields.length != 3) {
+                throw new IOException(String.format("Malformed cache manifest %s", manifestPath));
+            }
+            cachedFiles.add(new CachedFile(fields[0], Long.parseLong(fields[1]), fields[2]));
+        }
+        return cachedFiles;
+    }
+
+    /**
+     * Copies the cached map folder for the key to the destination. The copied files are checked against the manifest
+     * and a mismatching entry is removed from the cache.
+     *
+     * @return the summary stored with the entry if the destination now holds the cached map
+     */
+    public Optional<String> restore(String key, Path destination) {
+        Path entry = cacheFolder.resolve(key);
+        Path manifestPath = entry.resolve(MANIFEST);
+        if (!Files.isRegularFile(manifestPath)) {
+            return Optional.empty();
+        }
+
+        try {
+            Path filesFolder = entry.resolve(FILES);
+            for (CachedFile cachedFile : readManifest(manifestPath)) {
+                Path target = destination.resolve(cachedFile.path());
+                String hash = copyWithDigest(filesFolder.resolve(cachedFile.path()), target);
+                if (!hash.equals(cachedFile.hash()) || Files.size(target) != cachedFile.size()) {
+                    throw new IOException(String.format("Cached file %s failed its integrity check", cachedFile.path()));
+                }
+            }
+            String summary = Files.readString(entry.resolve(SUMMARY), StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(manifestPath, FileTime.from(Instant.now()));
+            return Optional.of(summary);
+        } catch (IOException | RuntimeException e) {
+            System.err.printf("Discarding cache entry %s: %s%n", key, e.getMessage());
+            FileUtil.deleteRecursiveIfExists(destination);
+            FileUtil.deleteRecursiveIfExists(entry);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Adds the map folder to the cache under the key. The entry is assembled in a staging folder and moved into place
+     * so other generators never observe a partial entry
+     */
+    public void store(String key, Path source, String summary) throws IOException {
+        Path entry = cacheFolder.resolve(key);
+        if (Files.exists(entry)) {
+            return;
+        }
+
+        Files.createDirectories(cacheFolder);
+        Path staging = Files.createTempDirectory(cacheFolder, key + STAGING_SUFFIX);
+        try {
+            List<Path> sourceFiles;
+            try (Stream<Path> paths = Files.walk(source)) {
+                sourceFiles = paths.filter(Files::isRegularFile).sorted().toList();
+            }
+
+            Path filesFolder = staging.resolve(FILES);
+            List<String> manifestLines = new ArrayList<>();
+            for (Path sourceFile : sourceFiles) {
+                String relativePath = source.relativize(sourceFile).toString().replace('\\', '/');
+                Path target = filesFolder.resolve(relativePath);
+                String hash = copyWithDigest(sourceFile, target);
+                manifestLines.add(String.format("%s\t%d\t%s", hash, Files.size(target), relativePath));
+            }
+            Files.writeString(staging.resolve(SUMMARY), summary, StandardCharsets.UTF_8);
+            Files.write(staging.resolve(MANIFEST), manifestLines, StandardCharsets.UTF_8);
+            Files.move(staging, entry, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            // Another generator populated the entry first
+        } finally {
+            FileUtil.deleteRecursiveIfExists(staging);
+        }
+
+        evict();
+    }
+
+    private void evict() throws IOException {
+        List<CacheEntry> entries = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(cacheFolder)) {
+            for (Path entry : paths.toList()) {
+                Path manifestPath = entry.resolve(MANIFEST);
+                if (entry.getFileName().toString().contains(STAGING_SUFFIX) || !Files.isRegularFile(manifestPath)) {
+                    continue;
+                }
+                try {
+                    long size = readManifest(manifestPath).stream().mapToLong(CachedFile::size).sum();
+                    entries.add(new CacheEntry(entry, size, Files.getLastModifiedTime(manifestPath)));
+                } catch (IOException | RuntimeException e) {
+                    FileUtil.deleteRecursiveIfExists(entry);
+                }
+            }
+        }
+
+        long totalSize = entries.stream().mapToLong(CacheEntry::size).sum();
+        entries.sort(Comparator.comparing(CacheEntry::lastAccess));
+        for (int i = 0; i < entries.size() && totalSize > maxSizeBytes; ++i) {
+            CacheEntry entry = entries.get(i);
+            FileUtil.deleteRecursiveIfExists(entry.path());
+            totalSize -= entry.size();
+        }
+    }
+
+    private record CachedFile(String hash, long size, String path) {}
+
+    private record CacheEntry(Path path, long size, FileTime lastAccess) {}
+}
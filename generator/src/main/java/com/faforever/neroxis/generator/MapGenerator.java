@@ -56,6 +56,9 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import static picocli.CommandLine.Command;
@@ -89,6 +92,8 @@ public class MapGenerator implements Callable<Integer> {
     private Integer numTeams;
     @CommandLine.Option(names = "--num-to-generate", order = 6, defaultValue = "1", description = "Number of maps to create")
     private Integer numToGenerate;
+    @CommandLine.Option(names = "--num-concurrent", order = 7, defaultValue = "1", description = "Number of maps to generate at the same time when creating more than one", showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private Integer numConcurrent;
     private Integer mapSize;
     @CommandLine.ArgGroup(order = 2)
     private TuningOptions tuningOptions = new TuningOptions();
@@ -97,6 +102,9 @@ public class MapGenerator implements Callable<Integer> {
     @CommandLine.Mixin
     private DebugMixin debugMixin;
     private Path previewFolder;
+    private Path cacheFolder;
+    @Option(names = "--cache-size", order = 102, defaultValue = "1024", description = "Maximum size of the map cache in MB", showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+    private long cacheSize;
 
     public static void main(String[] args) {
         DebugUtil.timedRun("Execution", () -> {
@@ -122,6 +130,12 @@ public class MapGenerator implements Callable<Integer> {
         this.previewFolder = previewFolder;
     }
 
+    @Option(names = "--cache-path", order = 101, description = "Folder to cache generated maps in, maps already present in the cache are copied instead of generated")
+    private void setCacheFolder(Path cacheFolder) throws IOException {
+        CLIUtils.checkWritableDirectory(cacheFolder, spec);
+        this.cacheFolder = cacheFolder;
+    }
+
     @Command(name = "styles", aliases = {
             "--styles"}, description = "Prints the styles available", versionProvider = VersionProvider.class, usageHelpAutoWidth = true)
     private void printStyles() {
@@ -135,42 +149,140 @@ public class MapGenerator implements Callable<Integer> {
     public Integer call() throws Exception {
         Locale.setDefault(Locale.ROOT);
 
+        GenerationCache generationCache = cacheFolder != null ? new GenerationCache(cacheFolder, cacheSize * 1024 * 1024) : null;
+        // Previews and debug output need the generated map in memory so they always bypass the cache
+        boolean useCache = generationCache != null && previewFolder == null && !DebugUtil.DEBUG;
+
+        if (numToGenerate > 1 && numConcurrent > 1) {
+            return generateConcurrently(generationCache, useCache);
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<MapTiming> mapTimings = new ArrayList<>();
         for (int i = 0; i < numToGenerate; i++) {
             if (numToGenerate > 1) {
-                mapName = null;
-                seed = new Random().nextLong();
-                tuningOptions = new TuningOptions();
+                resetForNextMap();
             }
 
-            populateGeneratorParametersAndName();
+            mapTimings.add(generateMap(generationCache, useCache));
+        }
 
-            FileUtil.deleteRecursiveIfExists(outputFolderMixin.getOutputPath().resolve(mapName));
-            System.out.println(mapName);
+        if (numToGenerate > 1) {
+            printSummary(mapTimings, System.currentTimeMillis() - startTime);
+        }
 
-            generate();
-            save();
+        return 0;
+    }
 
-            System.out.printf("Saving map to %s%n", outputFolderMixin.getOutputPath()
-                                                                     .resolve(mapName)
-                                                                     .toAbsolutePath());
+    private void resetForNextMap() {
+        mapName = null;
+        seed = new Random().nextLong();
+        tuningOptions = new TuningOptions();
+    }
 
-            Visibility visibility = Optional.ofNullable(tuningOptions.getVisibilityOptions())
-                                            .map(VisibilityOptions::getVisibility)
-                                            .orElse(null);
-            if (visibility == null) {
-                System.out.printf("Seed: %d%n", seed);
-                System.out.println(styleGenerator.getGeneratorParameters().toString());
-                System.out.printf("Symmetry Settings: %s%n", styleGenerator.getSymmetrySettings());
-                System.out.printf("Style: %s%n", tuningOptions.getMapStyle());
-                System.out.println(styleGenerator.generatorsToString());
-
-                if (previewFolder != null) {
-                    SCMapExporter.exportPreview(previewFolder, map);
-                }
+    /**
+     * Generates the maps on a pool of separate generators, each parsed from the original arguments and running its
+     * own pipeline, so every map comes out exactly as it would when generated on its own
+     */
+    private int generateConcurrently(GenerationCache generationCache, boolean useCache) {
+        String[] args = spec.commandLine().getParseResult().originalArgs().toArray(String[]::new);
+        long startTime = System.currentTimeMillis();
+        ExecutorService mapExecutor = Executors.newFixedThreadPool(numConcurrent);
+        List<CompletableFuture<MapTiming>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < numToGenerate; i++) {
+                MapGenerator mapGenerator = new MapGenerator();
+                CommandLine commandLine = new CommandLine(mapGenerator);
+                commandLine.setAbbreviatedOptionsAllowed(true);
+                commandLine.parseArgs(args);
+                mapGenerator.resetForNextMap();
+
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    MapTiming[] mapTiming = new MapTiming[1];
+                    Pipeline.bind(new Pipeline(),
+                                  () -> mapTiming[0] = mapGenerator.generateMap(generationCache, useCache)).run();
+                    return mapTiming[0];
+                }, mapExecutor).exceptionally(throwable -> {
+                    throwable.printStackTrace();
+                    return new MapTiming(mapGenerator.getMapName(), "failed", 0);
+                }));
             }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            mapExecutor.shutdown();
         }
 
-        return 0;
+        List<MapTiming> mapTimings = futures.stream().map(CompletableFuture::join).toList();
+        printSummary(mapTimings, System.currentTimeMillis() - startTime);
+        return mapTimings.stream().anyMatch(mapTiming -> mapTiming.status().equals("failed")) ? 1 : 0;
+    }
+
+    private MapTiming generateMap(GenerationCache generationCache, boolean useCache) {
+        long startTime = System.currentTimeMillis();
+        populateGeneratorParametersAndName();
+
+        Path mapFolder = outputFolderMixin.getOutputPath().resolve(mapName);
+        FileUtil.deleteRecursiveIfExists(mapFolder);
+        System.out.println(mapName);
+
+        String cacheKey = useCache ? GenerationCache.getKey(VERSION, mapName) : null;
+        if (useCache) {
+            Optional<String> cachedSummary = generationCache.restore(cacheKey, mapFolder);
+            if (cachedSummary.isPresent()) {
+                System.out.printf("Copied cached map to %s%n", mapFolder.toAbsolutePath());
+                System.out.print(cachedSummary.get());
+                return new MapTiming(mapName, "cached", System.currentTimeMillis() - startTime);
+            }
+        }
+
+        generate();
+        System.out.printf("Saving map to %s%n", mapFolder.toAbsolutePath());
+        boolean saved = save();
+        Visibility visibility = Optional.ofNullable(tuningOptions.getVisibilityOptions())
+                                        .map(VisibilityOptions::getVisibility)
+                                        .orElse(null);
+        String summary = visibility == null ? getSummary() : "";
+
+        if (useCache && saved) {
+            try {
+                generationCache.store(cacheKey, mapFolder, summary);
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.err.println("Error while caching the map.");
+            }
+        }
+
+        System.out.print(summary);
+        if (previewFolder != null && visibility == null) {
+            try {
+                SCMapExporter.exportPreview(previewFolder, map);
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.err.println("Error while saving the preview.");
+            }
+        }
+
+        return new MapTiming(mapName, saved ? "generated" : "failed", System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Returns the seed, parameters and generators of the generated map
+     */
+    private String getSummary() {
+        return String.format("Seed: %d%n", seed)
+               + styleGenerator.getGeneratorParameters().toString()
+               + System.lineSeparator()
+               + String.format("Symmetry Settings: %s%n", styleGenerator.getSymmetrySettings())
+               + String.format("Style: %s%n", tuningOptions.getMapStyle())
+               + styleGenerator.generatorsToString()
+               + System.lineSeparator();
+    }
+
+    private void printSummary(List<MapTiming> mapTimings, long totalTime) {
+        System.out.printf("Finished %d maps in %.2f s, %.2f maps per minute%n", mapTimings.size(), totalTime / 1000f,
+                          mapTimings.size() * 60000f / StrictMath.max(totalTime, 1));
+        mapTimings.forEach(mapTiming -> System.out.printf("%s: %s in %d ms%n", mapTiming.mapName(), mapTiming.status(),
+                                                          mapTiming.time()));
     }
 
     void populateGeneratorParametersAndName() {
@@ -457,7 +569,7 @@ public class MapGenerator implements Callable<Integer> {
         }
     }
 
-    private void save() {
+    private boolean save() {
         try {
             long startTime = System.currentTimeMillis();
             Path outputPath = outputFolderMixin.getOutputPath();
@@ -473,9 +585,11 @@ public class MapGenerator implements Callable<Integer> {
                 toFile(outputPath.resolve(mapName).resolve("debug").resolve("generatorParams.txt"));
                 System.out.printf("Debug export done: %d ms\n", System.currentTimeMillis() - startTime);
             }
+            return true;
         } catch (IOException e) {
             e.printStackTrace();
             System.err.println("Error while saving the map.");
+            return false;
         }
     }
 
@@ -549,4 +663,6 @@ public class MapGenerator implements Callable<Integer> {
             out.close();
         }
     }
+
+    private record MapTiming(String mapName, String status, long time) {}
 }
@@ -82,25 +82,29 @@ public abstract class StyleGenerator extends ElementGenerator {
 
         random = null;
 
-        Pipeline.start();
+        Pipeline.start(true);
 
-        CompletableFuture<Void> heightMapFuture = CompletableFuture.runAsync(terrainGenerator::setHeightmapImage);
-        CompletableFuture<Void> aiMarkerFuture = CompletableFuture.runAsync(
+        CompletableFuture<Void> heightMapFuture = CompletableFuture.runAsync(
+                Pipeline.bind(terrainGenerator::setHeightmapImage));
+        CompletableFuture<Void> aiMarkerFuture = CompletableFuture.runAsync(Pipeline.bind(
                 () -> generateAIMarkers(terrainGenerator.getPassable(), terrainGenerator.getPassableLand(),
-                                        terrainGenerator.getPassableWater()));
-        CompletableFuture<Void> textureFuture = CompletableFuture.runAsync(textureGenerator::setTextures);
-        CompletableFuture<Void> normalFuture = CompletableFuture.runAsync(textureGenerator::setCompressedDecals);
-        CompletableFuture<Void> previewFuture = CompletableFuture.runAsync(textureGenerator::generatePreview);
-        CompletableFuture<Void> resourcesFuture = CompletableFuture.runAsync(resourceGenerator::placeResources);
-        CompletableFuture<Void> decalsFuture = CompletableFuture.runAsync(decalGenerator::placeDecals);
-        CompletableFuture<Void> propsFuture = resourcesFuture.thenAccept(aVoid -> propGenerator.placeProps());
-        CompletableFuture<Void> unitsFuture = resourcesFuture.thenAccept(aVoid -> propGenerator.placeUnits());
+                                        terrainGenerator.getPassableWater())));
+        CompletableFuture<Void> textureFuture = CompletableFuture.runAsync(Pipeline.bind(textureGenerator::setTextures));
+        CompletableFuture<Void> normalFuture = CompletableFuture.runAsync(
+                Pipeline.bind(textureGenerator::setCompressedDecals));
+        CompletableFuture<Void> previewFuture = CompletableFuture.runAsync(
+                Pipeline.bind(textureGenerator::generatePreview));
+        CompletableFuture<Void> resourcesFuture = CompletableFuture.runAsync(
+                Pipeline.bind(resourceGenerator::placeResources));
+        CompletableFuture<Void> decalsFuture = CompletableFuture.runAsync(Pipeline.bind(decalGenerator::placeDecals));
+        CompletableFuture<Void> propsFuture = resourcesFuture.thenRun(Pipeline.bind(propGenerator::placeProps));
+        CompletableFuture<Void> unitsFuture = resourcesFuture.thenRun(Pipeline.bind(propGenerator::placeUnits));
 
         CompletableFuture<Void> placementFuture = CompletableFuture.allOf(heightMapFuture, aiMarkerFuture,
                                                                           textureFuture, previewFuture, resourcesFuture,
                                                                           decalsFuture, propsFuture, unitsFuture,
                                                                           normalFuture)
-                                                                   .thenAccept(aVoid -> setHeights());
+                                                                   .thenRun(Pipeline.bind(this::setHeights));
 
         placementFuture.join();
         Pipeline.join();
@@ -176,17 +180,17 @@ public abstract class StyleGenerator extends ElementGenerator {
     protected void generateAIMarkers(BooleanMask passable, BooleanMask passableLand, BooleanMask passableWater) {
         Pipeline.await(passable, passableLand, passableWater);
         DebugUtil.timedRun("com.faforever.neroxis.map.generator", "placeAIMarkers", () -> {
-            CompletableFuture<Void> AmphibiousMarkers = CompletableFuture.runAsync(
+            CompletableFuture<Void> AmphibiousMarkers = CompletableFuture.runAsync(Pipeline.bind(
                     () -> AIMarkerPlacer.placeAIMarkers(passable.getFinalMask(), map.getAmphibiousAIMarkers(),
-                                                        "AmphPN%d"));
-            CompletableFuture<Void> LandMarkers = CompletableFuture.runAsync(
+                                                        "AmphPN%d")));
+            CompletableFuture<Void> LandMarkers = CompletableFuture.runAsync(Pipeline.bind(
                     () -> AIMarkerPlacer.placeAIMarkers(passableLand.getFinalMask(), map.getLandAIMarkers(),
-                                                        "LandPN%d"));
-            CompletableFuture<Void> NavyMarkers = CompletableFuture.runAsync(
+                                                        "LandPN%d")));
+            CompletableFuture<Void> NavyMarkers = CompletableFuture.runAsync(Pipeline.bind(
                     () -> AIMarkerPlacer.placeAIMarkers(passableWater.getFinalMask(), map.getNavyAIMarkers(),
-                                                        "NavyPN%d"));
+                                                        "NavyPN%d")));
             CompletableFuture<Void> AirMarkers = CompletableFuture.runAsync(
-                    () -> AIMarkerPlacer.placeAirAIMarkers(map));
+                    Pipeline.bind(() -> AIMarkerPlacer.placeAirAIMarkers(map)));
             CompletableFuture.allOf(AmphibiousMarkers, LandMarkers, NavyMarkers, AirMarkers).join();
         });
     }
@@ -218,7 +218,11 @@ public class BasicTerrainGenerator extends TerrainGenerator {
         plateaus.subtract(spawnLandMask).add(spawnPlateauMask);
         land.add(spawnLandMask).add(spawnPlateauMask);
         if (map.getSize() > 512 && symmetrySettings.getSpawnSymmetry().getNumSymPoints() <= 4) {
-            land.add(spawnLandMask).add(spawnPlateauMask).inflate(16).deflate(16).setSize(map.getSize() / 8);
+            land.add(spawnLandMask)
+                .add(spawnPlateauMask)
+                .inflate(16, getCoarseSize())
+                .deflate(16, getCoarseSize())
+                .setSize(map.getSize() / 8);
             land.erode(.5f, 10)
                 .add(spawnLandMask.copy().setSize(map.getSize() / 8))
                 .add(spawnPlateauMask.copy().setSize(map.getSize() / 8))
@@ -232,12 +236,12 @@ public class BasicTerrainGenerator extends TerrainGenerator {
 
         ensureSpawnTerrain();
 
-        mountains.multiply(generatorParameters.landDensity() < .25f ? land.copy().deflate(24) : land);
+        mountains.multiply(generatorParameters.landDensity() < .25f ? land.copy().deflate(24, getCoarseSize()) : land);
     }
 
     protected void ensureSpawnTerrain() {
-        mountains.subtract(connections.copy().inflate(mountainBrushSize / 4f).blur(16, .125f));
-        mountains.subtract(spawnLandMask.copy().inflate(mountainBrushSize / 4f));
+        mountains.subtract(connections.copy().inflate(mountainBrushSize / 4f, getCoarseSize()).blur(16, .125f));
+        mountains.subtract(spawnLandMask.copy().inflate(mountainBrushSize / 4f, getCoarseSize()));
 
         plateaus.multiply(land).subtract(spawnLandMask).add(spawnPlateauMask);
         land.add(plateaus).add(spawnLandMask).add(spawnPlateauMask);
@@ -269,7 +273,7 @@ public class BasicTerrainGenerator extends TerrainGenerator {
         initRamps();
 
         BooleanMask water = land.copy().invert();
-        BooleanMask deepWater = water.copy().deflate(32);
+        BooleanMask deepWater = water.copy().deflate(32, getCoarseSize());
 
         heightmap.setSize(mapSize + 1);
         heightmapLand.setSize(mapSize + 1);
@@ -305,7 +309,7 @@ public class BasicTerrainGenerator extends TerrainGenerator {
             heightMapNoise.addWhiteNoise(1)
                           .subtractAvg()
                           .clampMin(0f)
-                          .setToValue(land.copy().invert().inflate(16), 0f)
+                          .setToValue(land.copy().invert().inflate(16, getCoarseSize()), 0f)
                           .blur(mapSize / 16, spawnLandMask.copy().inflate(8))
                           .blur(mapSize / 16, spawnPlateauMask.copy().inflate(8))
                           .blur(mapSize / 16);
@@ -327,7 +331,7 @@ public class BasicTerrainGenerator extends TerrainGenerator {
         mountains.init(paintedMountains);
         land.add(paintedMountains);
 
-        heightmapMountains.blur(4, mountains.copy().inflate(64).subtract(mountains));
+        heightmapMountains.blur(4, mountains.copy().inflate(64, getCoarseSize()).subtract(mountains));
     }
 
     protected void setupPlateauHeightmapPipeline() {
@@ -347,7 +351,9 @@ public class BasicTerrainGenerator extends TerrainGenerator {
 
         BooleanMask plateauBase = heightmapPlateaus.copyAsBooleanMask(1f);
 
-        heightmapPlateaus.blur(4, plateauBase.copy().inflate(96).subtract(plateauBase.copy().inflate(4)));
+        heightmapPlateaus.blur(4, plateauBase.copy()
+                                              .inflate(96, getCoarseSize())
+                                              .subtract(plateauBase.copy().inflate(4)));
     }
 
     protected void setupSmallFeatureHeightmapPipeline() {
@@ -394,7 +400,7 @@ public class BasicTerrainGenerator extends TerrainGenerator {
                                             (float) (StrictMath.PI / 2));
         }
 
-        ramps.subtract(connections.copy().inflate(64))
+        ramps.subtract(connections.copy().inflate(64, getCoarseSize()))
              .inflate(maxStepSize / 2f)
              .add(connections.copy().inflate(maxStepSize / 2f))
              .multiply(plateaus.copy().outline())
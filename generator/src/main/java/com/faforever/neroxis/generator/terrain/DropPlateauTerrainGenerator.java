@@ -59,7 +59,8 @@ public class DropPlateauTerrainGenerator extends PathedTerrainGenerator {
         plateaus.dilute(.5f, 4);
 
         plateaus.setSize(mapSize + 1);
-        plateaus.subtract(connections.copy().inflate(plateauBrushSize * 7f / 16f).blur(12, .125f));
+        plateaus.subtract(
+                connections.copy().inflate(plateauBrushSize * 7f / 16f, getCoarseSize()).blur(12, .125f));
     }
 }
 
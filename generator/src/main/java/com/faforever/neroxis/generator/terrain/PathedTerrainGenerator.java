@@ -30,7 +30,7 @@ public abstract class PathedTerrainGenerator extends BasicTerrainGenerator {
 
         ensureSpawnTerrain();
 
-        mountains.multiply(land.copy().deflate(24));
+        mountains.multiply(land.copy().deflate(24, getCoarseSize()));
     }
 
     @Override
@@ -48,7 +48,7 @@ public abstract class PathedTerrainGenerator extends BasicTerrainGenerator {
         MapMaskMethods.pathInCenterBounds(random.nextLong(), ramps, maxStepSize, numPaths / 2, maxMiddlePoints, bound,
                                           (float) (StrictMath.PI / 2));
 
-        ramps.subtract(connections.copy().inflate(32))
+        ramps.subtract(connections.copy().inflate(32, getCoarseSize()))
              .inflate(maxStepSize / 2f)
              .multiply(plateaus.copy().outline())
              .add(connections.copy().inflate(maxStepSize / 2f).multiply(plateaus.copy().outline()))
@@ -53,6 +53,18 @@ public abstract class TerrainGenerator extends ElementGenerator {
 
     protected abstract void terrainSetup();
 
+    /**
+     * Size of the grid large scale terrain shapes are worked on. Morphology with a large radius runs on this grid and
+     * only the detail passes run at the full heightmap size. Maps up to 10km work at full size throughout.
+     * <p>
+     * Against exact morphology at seed 1234 this cut generation time by 4 to 25 percent at 20km and 40km. The map
+     * layout stays the same while mountain detail, cliff edges and the hills and markers placed on them move slightly
+     */
+    protected int getCoarseSize() {
+        int mapSize = map.getSize();
+        return mapSize > 512 ? mapSize / 4 : mapSize + 1;
+    }
+
     protected void passableSetup() {
         BooleanMask actualLand = heightmap.copyAsBooleanMask(
                 generatorParameters.biome().waterSettings().getElevation());
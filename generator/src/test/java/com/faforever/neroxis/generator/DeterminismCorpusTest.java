@@ -0,0 +1,102 @@
+package com.faforever.neroxis.generator;
+
+import com.faforever.neroxis.util.FileUtil;
+import com.faforever.neroxis.util.Pipeline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import picocli.CommandLine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Compares the per entry pipeline fingerprints of a fixed map per style against a recorded corpus.
+ * Run the generator tests with {@code -PrecordDeterminismCorpus} to (re)record the corpus after an intended
+ * change in output.
+ */
+@Execution(ExecutionMode.SAME_THREAD)
+public class DeterminismCorpusTest {
+    private static final String RECORD_PROPERTY = "neroxis.determinism.record";
+    private static final String CORPUS_RESOURCE = "/determinism/%s.txt";
+    private static final long SEED = 1234;
+    private static final int MAP_SIZE = 256;
+
+    @ParameterizedTest
+    @EnumSource(MapStyle.class)
+    public void TestMatchesCorpus(MapStyle style) throws IOException {
+        List<String> fingerprints = generateFingerprints(style);
+
+        String recordDirectory = System.getProperty(RECORD_PROPERTY);
+        if (recordDirectory != null) {
+            Path corpusPath = Path.of(recordDirectory).resolve(style + ".txt");
+            Files.createDirectories(corpusPath.getParent());
+            Files.write(corpusPath, fingerprints, StandardCharsets.UTF_8);
+            return;
+        }
+
+        List<String> recorded = readCorpus(style);
+        assertNotNull(recorded,
+                      String.format("No corpus recorded for %s, record it with -PrecordDeterminismCorpus", style));
+
+        assertEquals(recorded.get(0), fingerprints.get(0), "Map name encoding changed");
+        int entryCount = StrictMath.min(recorded.size(), fingerprints.size());
+        for (int i = 1; i < entryCount; ++i) {
+            assertEquals(recorded.get(i), fingerprints.get(i),
+                         String.format("%s diverged from the corpus at pipeline entry %d", style, i - 1));
+        }
+        assertEquals(recorded.size(), fingerprints.size(), String.format("%s pipeline entry count changed", style));
+    }
+
+    private List<String> generateFingerprints(MapStyle style) {
+        Pipeline.HASH_MASK = true;
+        try {
+            MapGenerator generator = new MapGenerator();
+            new CommandLine(generator).execute("--style", style.toString(), "--seed", Long.toString(SEED),
+                                               "--map-size", Integer.toString(MAP_SIZE));
+
+            List<String> fingerprints = new ArrayList<>();
+            fingerprints.add(generator.getMapName());
+            Arrays.stream(Pipeline.getHashArray())
+                  .map(entry -> entry == null ? "null" : entry.substring(0, entry.indexOf(',')))
+                  .forEach(fingerprints::add);
+            return fingerprints;
+        } finally {
+            Pipeline.HASH_MASK = false;
+        }
+    }
+
+    private List<String> readCorpus(MapStyle style) throws IOException {
+        InputStream inputStream = DeterminismCorpusTest.class.getResourceAsStream(
+                String.format(CORPUS_RESOURCE, style));
+        if (inputStream == null) {
+            return null;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            return reader.lines().toList();
+        }
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        try (Stream<Path> list = Files.list(Path.of("."))) {
+            list.filter(path -> path.getFileName().toString().startsWith("neroxis_map_generator_snapshot"))
+                .forEach(FileUtil::deleteRecursiveIfExists);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.faforever.neroxis.generator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class GenerationCacheTest {
+    private static final String MAP_NAME = "neroxis_map_generator_snapshot_aaaaaaaaaacne_aycaeaa";
+    private static final String SUMMARY = "Seed: 1234\nStyle: BASIC\n";
+    private static final int FILE_SIZE = 1000;
+
+    @TempDir
+    Path tempFolder;
+
+    @Test
+    public void TestStoreAndRestore() throws IOException {
+        GenerationCache cache = new GenerationCache(tempFolder.resolve("cache"), Long.MAX_VALUE);
+        Path source = createMapFolder("source", 1);
+        String key = GenerationCache.getKey("1.0", MAP_NAME);
+        cache.store(key, source, SUMMARY);
+
+        Path destination = tempFolder.resolve("destination");
+        assertEquals(Optional.of(SUMMARY), cache.restore(key, destination));
+        assertFolderEquals(source, destination);
+    }
+
+    @Test
+    public void TestRestoreMissingEntry() {
+        GenerationCache cache = new GenerationCache(tempFolder.resolve("cache"), Long.MAX_VALUE);
+        Path destination = tempFolder.resolve("destination");
+        assertEquals(Optional.empty(), cache.restore(GenerationCache.getKey("1.0", MAP_NAME), destination));
+        assertFalse(Files.exists(destination));
+    }
+
+    @Test
+    public void TestKeyDependsOnVersionAndName() {
+        String key = GenerationCache.getKey("1.0", MAP_NAME);
+        assertEquals(key, GenerationCache.getKey("1.0", MAP_NAME));
+        assertNotEquals(key, GenerationCache.getKey("1.1", MAP_NAME));
+        assertNotEquals(key, GenerationCache.getKey("1.0", "neroxis_map_generator_snapshot_aaaaaaaaaacne_aycaeai"));
+    }
+
+    @Test
+    public void TestCorruptedEntryIsDiscarded() throws IOException {
+        Path cacheFolder = tempFolder.resolve("cache");
+        GenerationCache cache = new GenerationCache(cacheFolder, Long.MAX_VALUE);
+        String key = GenerationCache.getKey("1.0", MAP_NAME);
+        cache.store(key, createMapFolder("source", 1), SUMMARY);
+
+        Path cachedFile = cacheFolder.resolve(key).resolve("files").resolve("env").resolve("map_normal.dds");
+        byte[] bytes = Files.readAllBytes(cachedFile);
+        bytes[0]++;
+        Files.write(cachedFile, bytes);
+
+        Path destination = tempFolder.resolve("destination");
+        assertEquals(Optional.empty(), cache.restore(key, destination));
+        assertFalse(Files.exists(destination));
+        assertFalse(Files.exists(cacheFolder.resolve(key)));
+    }
+
+    @Test
+    public void TestLeastRecentlyServedEntryIsEvicted() throws IOException {
+        Path cacheFolder = tempFolder.resolve("cache");
+        long entrySize = getFolderSize(createMapFolder("sizeProbe", 0));
+        GenerationCache cache = new GenerationCache(cacheFolder, 2 * entrySize);
+        String firstKey = GenerationCache.getKey("1.0", MAP_NAME);
+        String secondKey = GenerationCache.getKey("1.1", MAP_NAME);
+        String thirdKey = GenerationCache.getKey("1.2", MAP_NAME);
+
+        cache.store(firstKey, createMapFolder("first", 1), SUMMARY);
+        cache.store(secondKey, createMapFolder("second", 2), SUMMARY);
+        setLastAccess(cacheFolder, firstKey, 2);
+        setLastAccess(cacheFolder, secondKey, 1);
+        assertTrue(cache.restore(firstKey, tempFolder.resolve("restored")).isPresent());
+
+        cache.store(thirdKey, createMapFolder("third", 3), SUMMARY);
+        assertTrue(Files.exists(cacheFolder.resolve(firstKey)));
+        assertFalse(Files.exists(cacheFolder.resolve(secondKey)));
+        assertTrue(Files.exists(cacheFolder.resolve(thirdKey)));
+    }
+
+    private Path createMapFolder(String name, int content) throws IOException {
+        Path folder = tempFolder.resolve(name).resolve(MAP_NAME);
+        Files.createDirectories(folder.resolve("env"));
+        byte[] bytes = new byte[FILE_SIZE];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = (byte) (i * 31 + content);
+        }
+        Files.write(folder.resolve(MAP_NAME + ".scmap"), bytes);
+        Files.write(folder.resolve("env").resolve("map_normal.dds"), bytes);
+        Files.writeString(folder.resolve(MAP_NAME + "_scenario.lua"), "version = " + content, StandardCharsets.UTF_8);
+        return folder;
+    }
+
+    private long getFolderSize(Path folder) throws IOException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            return paths.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+
+    private void setLastAccess(Path cacheFolder, String key, int hoursAgo) throws IOException {
+        Files.setLastModifiedTime(cacheFolder.resolve(key).resolve("manifest.txt"),
+                                  FileTime.from(Instant.now().minus(hoursAgo, ChronoUnit.HOURS)));
+    }
+
+    private void assertFolderEquals(Path expected, Path actual) throws IOException {
+        try (Stream<Path> paths = Files.walk(expected)) {
+            for (Path expectedFile : paths.filter(Files::isRegularFile).toList()) {
+                Path actualFile = actual.resolve(expected.relativize(expectedFile));
+                assertArrayEquals(Files.readAllBytes(expectedFile), Files.readAllBytes(actualFile),
+                                  expectedFile.toString());
+            }
+        }
+    }
+}
@@ -12,12 +12,49 @@ import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public record BaseTemplate(Vector2 center, LinkedHashMap<String, LinkedHashSet<Vector2>> units) {
+    private static final Map<String, Map<String, List<Vector2>>> TEMPLATE_UNITS = new ConcurrentHashMap<>();
+
+    /**
+     * Returns a fresh copy of the unit positions of the template by unit type, so the caller may move and flip them.
+     * Every template file is only parsed once per process
+     */
     public static LinkedHashMap<String, LinkedHashSet<Vector2>> loadUnits(String file) throws IOException {
+        LinkedHashMap<String, LinkedHashSet<Vector2>> units = new LinkedHashMap<>();
+        getTemplateUnits(file).forEach((type, positions) -> {
+            LinkedHashSet<Vector2> typePositions = new LinkedHashSet<>(positions.size() * 2);
+            positions.forEach(position -> typePositions.add(new Vector2(position)));
+            units.put(type, typePositions);
+        });
+        return units;
+    }
+
+    /**
+     * Returns the cached unit positions of the template by unit type in file order. The positions are shared by every
+     * caller so they never leave this class, {@link #loadUnits(String)} hands out copies
+     */
+    private static Map<String, List<Vector2>> getTemplateUnits(String file) throws IOException {
+        Map<String, List<Vector2>> templateUnits = TEMPLATE_UNITS.get(file);
+        if (templateUnits == null) {
+            LinkedHashMap<String, List<Vector2>> parsedUnits = new LinkedHashMap<>();
+            parseUnits(file).forEach((type, positions) -> parsedUnits.put(type, List.copyOf(positions)));
+            templateUnits = Collections.unmodifiableMap(parsedUnits);
+            Map<String, List<Vector2>> cachedUnits = TEMPLATE_UNITS.putIfAbsent(file, templateUnits);
+            if (cachedUnits != null) {
+                templateUnits = cachedUnits;
+            }
+        }
+        return templateUnits;
+    }
+
+    private static LinkedHashMap<String, LinkedHashSet<Vector2>> parseUnits(String file) throws IOException {
         if (file.endsWith(".lua")) {
             return loadUnitsFromLua(file);
         } else if (file.endsWith(".scunits")) {
@@ -8,10 +8,14 @@ import com.faforever.neroxis.util.serial.biome.TerrainMaterials;
 import com.faforever.neroxis.util.serial.biome.WaterSettings;
 import lombok.Data;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Data
 public class Biomes {
@@ -24,9 +28,12 @@ public class Biomes {
                                                            "Loki", "Mars", "Moonlight", "Prayer", "Stones",
                                                            "Syrtis", "WindingRiver", "Wonder");
     private static final String CUSTOM_BIOMES_DIR = "/custom_biome/";
+    // Biomes are modified by their users so only the raw bytes of the bundled biome files are shared
+    private static final Map<String, byte[]> BUNDLED_FILE_CACHE = new ConcurrentHashMap<>();
 
     public static Biome loadBiome(String folderPath) {
-        if (Biomes.class.getResource(CUSTOM_BIOMES_DIR + folderPath) != null) {
+        boolean bundled = Biomes.class.getResource(CUSTOM_BIOMES_DIR + folderPath) != null;
+        if (bundled) {
             folderPath = CUSTOM_BIOMES_DIR + folderPath;
             if (!folderPath.endsWith("/")) {
                 folderPath += "/";
@@ -40,7 +47,7 @@ public class Biomes {
 
         TerrainMaterials terrainMaterials;
         try {
-            terrainMaterials = FileUtil.deserialize(folderPath + "materials.json", TerrainMaterials.class);
+            terrainMaterials = deserialize(folderPath, "materials.json", TerrainMaterials.class, bundled);
         } catch (IOException e) {
             throw new RuntimeException(String.format("An error occurred while loading %smaterials.json\n", folderPath),
                                        e);
@@ -48,14 +55,14 @@ public class Biomes {
 
         PropMaterials propMaterials;
         try {
-            propMaterials = FileUtil.deserialize(folderPath + "props.json", PropMaterials.class);
+            propMaterials = deserialize(folderPath, "props.json", PropMaterials.class, bundled);
         } catch (IOException e) {
             throw new RuntimeException(String.format("An error occurred while loading %sprops.json\n", folderPath), e);
         }
 
         DecalMaterials decalMaterials;
         try {
-            decalMaterials = FileUtil.deserialize(folderPath + "decals.json", DecalMaterials.class);
+            decalMaterials = deserialize(folderPath, "decals.json", DecalMaterials.class, bundled);
         } catch (IOException e) {
             throw new RuntimeException(String.format("An error occurred while loading %sdecals.json\n", folderPath), e);
         }
@@ -63,7 +70,7 @@ public class Biomes {
         // Water parameters
         WaterSettings waterSettings;
         try {
-            waterSettings = FileUtil.deserialize(folderPath + "WaterSettings.scmwtr", WaterSettings.class);
+            waterSettings = deserialize(folderPath, "WaterSettings.scmwtr", WaterSettings.class, bundled);
         } catch (IOException e) {
             throw new RuntimeException(String.format("An error occurred while loading %s WaterSettings\n", folderPath),
                                        e);
@@ -72,7 +79,7 @@ public class Biomes {
         // Lighting settings
         LightingSettings lightingSettings;
         try {
-            lightingSettings = FileUtil.deserialize(folderPath + "Light.scmlighting", LightingSettings.class);
+            lightingSettings = deserialize(folderPath, "Light.scmlighting", LightingSettings.class, bundled);
         } catch (IOException e) {
             throw new RuntimeException(
                     String.format("An error occurred while loading %s LightingSettings\n", folderPath), e);
@@ -81,4 +88,24 @@ public class Biomes {
         return new Biome(terrainMaterials.getName(), terrainMaterials, propMaterials, decalMaterials, waterSettings,
                          lightingSettings);
     }
+
+    private static <T> T deserialize(String folderPath, String fileName, Class<T> clazz,
+                                     boolean bundled) throws IOException {
+        String path = folderPath + fileName;
+        if (!bundled) {
+            return FileUtil.deserialize(path, clazz);
+        }
+
+        byte[] bytes = BUNDLED_FILE_CACHE.get(path);
+        if (bytes == null) {
+            try (InputStream inputStream = Biomes.class.getResourceAsStream(path)) {
+                if (inputStream == null) {
+                    throw new IOException(String.format("Could not find %s", path));
+                }
+                bytes = inputStream.readAllBytes();
+            }
+            BUNDLED_FILE_CACHE.putIfAbsent(path, bytes);
+        }
+        return FileUtil.deserialize(new ByteArrayInputStream(bytes), clazz);
+    }
 }
@@ -10,7 +10,9 @@ import java.awt.image.BufferedImage;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Data
 public class Brushes {
@@ -25,13 +27,19 @@ public class Brushes {
                                                                        "mountain4.png", "mountain5.png",
                                                                        "mountain6.png", "volcano2.png");
     public static final String CUSTOM_BRUSHES_DIR = "/images/brushes/";
+    // Bundled brushes never change so their decoded images are shared between all loads in the process
+    private static final Map<String, BufferedImage> BUNDLED_BRUSH_CACHE = new ConcurrentHashMap<>();
 
     public static FloatMask loadBrush(String brushPath, Long seed) {
         try {
             BufferedImage image;
             if (Brushes.class.getResource(CUSTOM_BRUSHES_DIR + brushPath) != null) {
-                image = ImageIO.read(
-                        Objects.requireNonNull(Brushes.class.getResourceAsStream(CUSTOM_BRUSHES_DIR + brushPath)));
+                image = BUNDLED_BRUSH_CACHE.get(brushPath);
+                if (image == null) {
+                    image = ImageIO.read(
+                            Objects.requireNonNull(Brushes.class.getResourceAsStream(CUSTOM_BRUSHES_DIR + brushPath)));
+                    BUNDLED_BRUSH_CACHE.putIfAbsent(brushPath, image);
+                }
             } else {
                 image = ImageIO.read(Paths.get(brushPath).toFile());
             }
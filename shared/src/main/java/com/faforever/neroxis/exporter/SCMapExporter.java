@@ -44,7 +44,7 @@ public class SCMapExporter {
     public static File file;
     private static DataOutputStream out;
 
-    public static void exportSCMAP(Path folderPath, SCMap map) throws IOException {
+    public static synchronized void exportSCMAP(Path folderPath, SCMap map) throws IOException {
         file = folderPath.resolve(map.getFilePrefix() + ".scmap").toFile();
         boolean status = file.createNewFile();
         out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
@@ -22,7 +22,7 @@ public class SaveExporter {
     public static File file;
     private static DataOutputStream out;
 
-    public static void exportSave(Path folderPath, SCMap map) throws IOException {
+    public static synchronized void exportSave(Path folderPath, SCMap map) throws IOException {
         file = folderPath.resolve(map.getFilePrefix() + "_save.lua").toFile();
         boolean status = file.createNewFile();
         Vector4 playableArea = map.getPlayableArea();
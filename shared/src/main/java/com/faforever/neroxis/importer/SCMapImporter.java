@@ -39,7 +39,7 @@ public class SCMapImporter {
     public static File file;
     private static DataInputStream in;
 
-    public static SCMap importSCMAP(Path folderPath) throws IOException {
+    public static synchronized SCMap importSCMAP(Path folderPath) throws IOException {
         File dir = folderPath.toFile();
 
         File[] mapFiles = dir.listFiles((dir1, filename) -> filename.endsWith(".scmap"));
@@ -6,6 +6,7 @@ import com.faforever.neroxis.mask.IntegerMask;
 import com.faforever.neroxis.mask.Mask;
 import com.faforever.neroxis.mask.Vector4Mask;
 import com.faforever.neroxis.util.ImageUtil;
+import com.faforever.neroxis.util.functional.ToFloatBiIntFunction;
 import com.faforever.neroxis.util.vector.Vector2;
 import com.faforever.neroxis.util.vector.Vector3;
 import com.faforever.neroxis.util.vector.Vector4;
@@ -16,7 +17,10 @@ import lombok.SneakyThrows;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
-import java.awt.image.RescaleOp;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.nio.file.Files;
@@ -24,8 +28,10 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import static com.faforever.neroxis.util.ImageUtil.insertImageIntoNewImageOfSize;
+import static com.faforever.neroxis.util.ImageUtil.resampleImage;
 import static com.faforever.neroxis.util.ImageUtil.scaleImage;
 
 @SuppressWarnings("unused")
@@ -233,6 +239,10 @@ public class SCMap {
         decals.add(decal);
     }
 
+    public void addDecals(Collection<Decal> decals) {
+        this.decals.addAll(decals);
+    }
+
     public int getDecalGroupCount() {
         return decalGroups.size();
     }
@@ -257,6 +267,10 @@ public class SCMap {
         props.add(prop);
     }
 
+    public void addProps(Collection<Prop> props) {
+        this.props.addAll(props);
+    }
+
     public int getArmyCount() {
         return armies.size();
     }
@@ -451,26 +465,25 @@ public class SCMap {
         this.biome.waterSettings()
                   .setElevationAbyss(this.biome.waterSettings().getElevationAbyss() * contentScale);
 
-        RescaleOp heightRescale = new RescaleOp(contentScale, 0, null);
-        heightRescale.filter(heightmap, heightmap);
-        heightmap = scaleImage(heightmap, StrictMath.round((heightmap.getWidth() - 1) * contentScale) + 1,
-                               StrictMath.round((heightmap.getHeight() - 1) * contentScale) + 1);
-        normalMap = scaleImage(normalMap, StrictMath.round(normalMap.getWidth() * contentScale),
-                               StrictMath.round(normalMap.getHeight() * contentScale));
-        waterMap = scaleImage(waterMap, StrictMath.round(waterMap.getWidth() * contentScale),
-                              StrictMath.round(waterMap.getHeight() * contentScale));
-        waterFoamMap = scaleImage(waterFoamMap, StrictMath.round(waterFoamMap.getWidth() * contentScale),
-                                  StrictMath.round(waterFoamMap.getHeight() * contentScale));
-        waterFlatnessMap = scaleImage(waterFlatnessMap, StrictMath.round(waterFlatnessMap.getWidth() * contentScale),
-                                      StrictMath.round(waterFlatnessMap.getHeight() * contentScale));
-        waterDepthBiasMap = scaleImage(waterDepthBiasMap, StrictMath.round(waterDepthBiasMap.getWidth() * contentScale),
-                                       StrictMath.round(waterDepthBiasMap.getHeight() * contentScale));
-        terrainType = scaleImage(terrainType, StrictMath.round(terrainType.getWidth() * contentScale),
-                                 StrictMath.round(terrainType.getHeight() * contentScale));
-        textureMasksHigh = scaleImage(textureMasksHigh, StrictMath.round(textureMasksHigh.getWidth() * contentScale),
-                                      StrictMath.round(textureMasksHigh.getHeight() * contentScale));
-        textureMasksLow = scaleImage(textureMasksLow, StrictMath.round(textureMasksLow.getWidth() * contentScale),
-                                     StrictMath.round(textureMasksLow.getHeight() * contentScale));
+        heightmap = resampleImage(heightmap, StrictMath.round((heightmap.getWidth() - 1) * contentScale) + 1,
+                                  StrictMath.round((heightmap.getHeight() - 1) * contentScale) + 1, contentScale);
+        normalMap = resampleImage(normalMap, StrictMath.round(normalMap.getWidth() * contentScale),
+                                  StrictMath.round(normalMap.getHeight() * contentScale), 1);
+        waterMap = resampleImage(waterMap, StrictMath.round(waterMap.getWidth() * contentScale),
+                                 StrictMath.round(waterMap.getHeight() * contentScale), 1);
+        waterFoamMap = resampleImage(waterFoamMap, StrictMath.round(waterFoamMap.getWidth() * contentScale),
+                                     StrictMath.round(waterFoamMap.getHeight() * contentScale), 1);
+        waterFlatnessMap = resampleImage(waterFlatnessMap, StrictMath.round(waterFlatnessMap.getWidth() * contentScale),
+                                         StrictMath.round(waterFlatnessMap.getHeight() * contentScale), 1);
+        waterDepthBiasMap = resampleImage(waterDepthBiasMap,
+                                          StrictMath.round(waterDepthBiasMap.getWidth() * contentScale),
+                                          StrictMath.round(waterDepthBiasMap.getHeight() * contentScale), 1);
+        terrainType = resampleImage(terrainType, StrictMath.round(terrainType.getWidth() * contentScale),
+                                    StrictMath.round(terrainType.getHeight() * contentScale), 1);
+        textureMasksHigh = resampleImage(textureMasksHigh, StrictMath.round(textureMasksHigh.getWidth() * contentScale),
+                                         StrictMath.round(textureMasksHigh.getHeight() * contentScale), 1);
+        textureMasksLow = resampleImage(textureMasksLow, StrictMath.round(textureMasksLow.getWidth() * contentScale),
+                                        StrictMath.round(textureMasksLow.getHeight() * contentScale), 1);
     }
 
     private void scaleMapBounds(float boundsScale, Vector2 topLeftOffset) {
@@ -564,36 +577,55 @@ public class SCMap {
         positionedObjects.addAll(repositionedObjects);
     }
 
-    private void setObjectHeights(Collection<? extends PositionedObject> positionedObjects) {
-        positionedObjects.forEach(positionedObject -> {
-            Vector2 position = new Vector2(positionedObject.getPosition());
-            if (ImageUtil.inImageBounds(position, heightmap)) {
-                positionedObject.getPosition()
-                                .setY(heightmap.getRaster()
-                                               .getPixel((int) position.getX(), (int) position.getY(), new int[]{0})[0]
-                                      * heightMapScale);
+    private void setObjectHeights(Collection<? extends PositionedObject> positionedObjects,
+                                  ToFloatBiIntFunction heightSampler) {
+        int width = heightmap.getWidth();
+        int height = heightmap.getHeight();
+        for (PositionedObject positionedObject : positionedObjects) {
+            Vector3 position = positionedObject.getPosition();
+            int x = (int) position.getX();
+            int y = (int) position.getZ();
+            if (x >= 0 && x < width && y >= 0 && y < height) {
+                position.setY(heightSampler.apply(x, y));
             }
-        });
+        }
+    }
+
+    /**
+     * Returns a sampler for the scaled terrain height at integer heightmap coordinates.
+     * The heightmap buffer is read directly when it has the standard layout.
+     * Coordinates must lie within the heightmap
+     */
+    public ToFloatBiIntFunction getHeightSampler() {
+        float scale = heightMapScale;
+        WritableRaster raster = heightmap.getRaster();
+        if (heightmap.getType() == BufferedImage.TYPE_USHORT_GRAY && raster.getParent() == null) {
+            short[] heights = ((DataBufferUShort) raster.getDataBuffer()).getData();
+            int width = heightmap.getWidth();
+            return (x, y) -> (heights[x + y * width] & 0xFFFF) * scale;
+        }
+        return (x, y) -> raster.getSample(x, y, 0) * scale;
     }
 
     public void setHeights() {
-        setObjectHeights(getSpawns());
-        setObjectHeights(getAirAIMarkers());
-        setObjectHeights(getAmphibiousAIMarkers());
-        setObjectHeights(getExpansionAIMarkers());
-        setObjectHeights(getLargeExpansionAIMarkers());
-        setObjectHeights(getNavalAreaAIMarkers());
-        setObjectHeights(getNavyAIMarkers());
-        setObjectHeights(getLandAIMarkers());
-        setObjectHeights(getNavalRallyMarkers());
-        setObjectHeights(getRallyMarkers());
-        setObjectHeights(getBlankMarkers());
-        setObjectHeights(getHydros());
-        setObjectHeights(getMexes());
-        setObjectHeights(getProps());
-        setObjectHeights(getDecals());
-        setObjectHeights(getWaveGenerators());
-        armies.forEach(army -> army.getGroups().forEach(group -> setObjectHeights(group.getUnits())));
+        ToFloatBiIntFunction heightSampler = getHeightSampler();
+        setObjectHeights(getSpawns(), heightSampler);
+        setObjectHeights(getAirAIMarkers(), heightSampler);
+        setObjectHeights(getAmphibiousAIMarkers(), heightSampler);
+        setObjectHeights(getExpansionAIMarkers(), heightSampler);
+        setObjectHeights(getLargeExpansionAIMarkers(), heightSampler);
+        setObjectHeights(getNavalAreaAIMarkers(), heightSampler);
+        setObjectHeights(getNavyAIMarkers(), heightSampler);
+        setObjectHeights(getLandAIMarkers(), heightSampler);
+        setObjectHeights(getNavalRallyMarkers(), heightSampler);
+        setObjectHeights(getRallyMarkers(), heightSampler);
+        setObjectHeights(getBlankMarkers(), heightSampler);
+        setObjectHeights(getHydros(), heightSampler);
+        setObjectHeights(getMexes(), heightSampler);
+        setObjectHeights(getProps(), heightSampler);
+        setObjectHeights(getDecals(), heightSampler);
+        setObjectHeights(getWaveGenerators(), heightSampler);
+        armies.forEach(army -> army.getGroups().forEach(group -> setObjectHeights(group.getUnits(), heightSampler)));
     }
 
     public void setWaterFlatnessMap(BufferedImage waterFlatnessMap) {
@@ -613,28 +645,51 @@ public class SCMap {
         checkMaskSize(mask1, textureMasksWidth);
         checkMaskSize(mask2, textureMasksWidth);
         checkMaskSize(mask3, textureMasksWidth);
-        for (int x = 0; x < textureMasksWidth; x++) {
-            for (int y = 0; y < textureMasksWidth; y++) {
-                int val0 = convertToRawTextureValue(mask0.getPrimitive(x, y));
-                int val1 = convertToRawTextureValue(mask1.getPrimitive(x, y));
-                int val2 = convertToRawTextureValue(mask2.getPrimitive(x, y));
-                int val3 = convertToRawTextureValue(mask3.getPrimitive(x, y));
-                textureMasks.getRaster().setPixel(x, y, new int[]{val0, val1, val2, val3});
-            }
-        }
+        setTextureMaskPixels(textureMasks, (x, y, pixel) -> {
+            pixel[0] = convertToRawTextureValue(mask0.getPrimitive(x, y));
+            pixel[1] = convertToRawTextureValue(mask1.getPrimitive(x, y));
+            pixel[2] = convertToRawTextureValue(mask2.getPrimitive(x, y));
+            pixel[3] = convertToRawTextureValue(mask3.getPrimitive(x, y));
+        });
     }
 
     public void setTextureMasksScaled(BufferedImage textureMasks, Vector4Mask mask) {
         int textureMasksWidth = textureMasks.getWidth();
         checkMaskSize(mask, textureMasksWidth);
-        for (int x = 0; x < textureMasksWidth; x++) {
-            for (int y = 0; y < textureMasksWidth; y++) {
-                Vector4 vector = mask.get(x, y);
-                int val0 = convertToRawTextureValue(vector.get(0));
-                int val1 = convertToRawTextureValue(vector.get(1));
-                int val2 = convertToRawTextureValue(vector.get(2));
-                int val3 = convertToRawTextureValue(vector.get(3));
-                textureMasks.getRaster().setPixel(x, y, new int[]{val0, val1, val2, val3});
+        setTextureMaskPixels(textureMasks, (x, y, pixel) -> {
+            Vector4 vector = mask.get(x, y);
+            pixel[0] = convertToRawTextureValue(vector.get(0));
+            pixel[1] = convertToRawTextureValue(vector.get(1));
+            pixel[2] = convertToRawTextureValue(vector.get(2));
+            pixel[3] = convertToRawTextureValue(vector.get(3));
+        });
+    }
+
+    /**
+     * Fills every pixel of the texture masks from the given function. Standard ARGB images are packed straight into
+     * their backing array one image row per task, so every thread writes its own contiguous run of pixels, other
+     * layouts go through the raster
+     */
+    private void setTextureMaskPixels(BufferedImage textureMasks, TexturePixelFunction pixelFunction) {
+        int width = textureMasks.getWidth();
+        WritableRaster raster = textureMasks.getRaster();
+        if (textureMasks.getType() == BufferedImage.TYPE_INT_ARGB && raster.getParent() == null) {
+            int[] pixels = ((DataBufferInt) raster.getDataBuffer()).getData();
+            IntStream.range(0, width).parallel().forEach(y -> {
+                int[] pixel = new int[4];
+                int rowOffset = y * width;
+                for (int x = 0; x < width; x++) {
+                    pixelFunction.apply(x, y, pixel);
+                    pixels[rowOffset + x] = pixel[3] << 24 | pixel[0] << 16 | pixel[1] << 8 | pixel[2];
+                }
+            });
+        } else {
+            int[] pixel = new int[4];
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < width; y++) {
+                    pixelFunction.apply(x, y, pixel);
+                    raster.setPixel(x, y, pixel);
+                }
             }
         }
     }
@@ -642,19 +697,32 @@ public class SCMap {
     public void setTerrainType(BufferedImage terrainType, IntegerMask mask) {
         int terrainTypeWidth = terrainType.getWidth();
         checkMaskSize(mask, terrainTypeWidth);
-        for (int x = 0; x < terrainTypeWidth; x++) {
-            for (int y = 0; y < terrainTypeWidth; y++) {
-                int val0 = mask.getPrimitive(x, y);
-                terrainType.getRaster().setPixel(x, y, new int[]{val0});
+        WritableRaster raster = terrainType.getRaster();
+        if (terrainType.getType() == BufferedImage.TYPE_BYTE_GRAY && raster.getParent() == null) {
+            byte[] pixels = ((DataBufferByte) raster.getDataBuffer()).getData();
+            for (int x = 0; x < terrainTypeWidth; x++) {
+                for (int y = 0; y < terrainTypeWidth; y++) {
+                    pixels[x + y * terrainTypeWidth] = (byte) mask.getPrimitive(x, y);
+                }
+            }
+        } else {
+            for (int x = 0; x < terrainTypeWidth; x++) {
+                for (int y = 0; y < terrainTypeWidth; y++) {
+                    raster.setSample(x, y, 0, mask.getPrimitive(x, y));
+                }
             }
         }
-
     }
 
     private int convertToRawTextureValue(float value) {
         return value > 0f ? StrictMath.round(StrictMath.min(1f, value) * 127 + 128) : 0;
     }
 
+    @FunctionalInterface
+    private interface TexturePixelFunction {
+        void apply(int x, int y, int[] pixel);
+    }
+
     @SneakyThrows
     public void writeToFile(Path path) {
         Files.deleteIfExists(path);
@@ -20,29 +20,41 @@ public class DecalPlacer {
         random = new Random(seed);
     }
 
+    /**
+     * Places decals spaced between the separations on the mask and mirrors them to the symmetry points. All decals are
+     * collected first and added to the map in one pass
+     */
     public void placeDecals(BooleanMask spawnMask, String[] paths, float minSeparation, float maxSeparation,
                             float minScale, float maxScale) {
         if (paths != null && paths.length > 0) {
+            // The coordinates are limited to the symmetry region by getRandomCoordinates itself
             BooleanMask spawnMaskCopy = spawnMask.copy();
-            spawnMaskCopy.limitToSymmetryRegion();
             List<Vector2> coordinates = spawnMaskCopy.getRandomCoordinates(minSeparation, maxSeparation);
-            coordinates.forEach((location) -> {
+            List<Decal> decals = new ArrayList<>(coordinates.size() * spawnMask.getSymmetrySettings()
+                                                                               .getSpawnSymmetry()
+                                                                               .getNumSymPoints());
+            coordinates.forEach(location -> {
                 float scale = random.nextFloat() * (maxScale - minScale) + minScale;
-                location.roundToNearestHalfPoint();
-                Vector3 rotation = new Vector3(0f, random.nextFloat() * (float) StrictMath.PI, 0f);
-                Decal decal = new Decal(paths[random.nextInt(paths.length)], location, rotation, scale, 1000);
-                map.addDecal(decal);
-                List<Vector2> symmetryPoints = spawnMask.getSymmetryPoints(decal.getPosition(), SymmetryType.SPAWN);
-                symmetryPoints.forEach(Vector2::roundToNearestHalfPoint);
-                ArrayList<Float> symmetryRotation = spawnMask.getSymmetryRotation(decal.getRotation().getY());
-                for (int i = 0; i < symmetryPoints.size(); i++) {
-                    Vector3 symVectorRotation = new Vector3(decal.getRotation().getX(), symmetryRotation.get(i),
-                                                            decal.getRotation().getZ());
-                    Decal symDecal = new Decal(decal.getPath(), symmetryPoints.get(i), symVectorRotation, scale,
-                                               decal.getCutOffLOD());
-                    map.addDecal(symDecal);
-                }
+                float rotation = random.nextFloat() * (float) StrictMath.PI;
+                String path = paths[random.nextInt(paths.length)];
+                addSymmetricDecals(decals, spawnMask, path, location, rotation, scale);
             });
+            map.addDecals(decals);
+        }
+    }
+
+    private void addSymmetricDecals(List<Decal> decals, BooleanMask spawnMask, String path, Vector2 location,
+                                    float rotation, float scale) {
+        location.roundToNearestHalfPoint();
+        Decal decal = new Decal(path, location, new Vector3(0f, rotation, 0f), scale, 1000);
+        decals.add(decal);
+        List<Vector2> symmetryPoints = spawnMask.getSymmetryPoints(decal.getPosition(), SymmetryType.SPAWN);
+        ArrayList<Float> symmetryRotation = spawnMask.getSymmetryRotation(decal.getRotation().getY());
+        for (int i = 0; i < symmetryPoints.size(); i++) {
+            Vector2 symmetryPoint = symmetryPoints.get(i).roundToNearestHalfPoint();
+            Vector3 symVectorRotation = new Vector3(decal.getRotation().getX(), symmetryRotation.get(i),
+                                                    decal.getRotation().getZ());
+            decals.add(new Decal(path, symmetryPoint, symVectorRotation, scale, decal.getCutOffLOD()));
         }
     }
 }
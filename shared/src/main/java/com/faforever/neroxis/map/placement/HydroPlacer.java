@@ -5,6 +5,7 @@ import com.faforever.neroxis.map.SCMap;
 import com.faforever.neroxis.map.Spawn;
 import com.faforever.neroxis.map.SymmetryType;
 import com.faforever.neroxis.mask.BooleanMask;
+import com.faforever.neroxis.mask.SpacedCandidates;
 import com.faforever.neroxis.util.vector.Vector2;
 import com.faforever.neroxis.util.vector.Vector3;
 
@@ -22,6 +23,10 @@ public class HydroPlacer {
         random = new Random(seed);
     }
 
+    /**
+     * Places the hydros in the true pixels of the mask. Areas are cleared around mexes, spawns and placed hydros
+     * through {@link SpacedCandidates} instead of filling circles on masks
+     */
     public void placeHydros(int hydroCount, BooleanMask spawnMask) {
         map.getHydros().clear();
         int numSymPoints = spawnMask.getSymmetrySettings().getSpawnSymmetry().getNumSymPoints();
@@ -30,25 +35,28 @@ public class HydroPlacer {
             spawnMask.limitToCenteredCircle(spawnMask.getSize() / 2f);
         }
         spawnMask.fillCenter(64, false).limitToSymmetryRegion();
+        SpacedCandidates spawnCandidates = spawnMask.getSpacedCandidates(hydroSpacing);
 
         map.getMexes()
            .stream()
            .filter(mex -> spawnMask.inTeam(mex.getPosition(), false))
-           .forEach(mex -> spawnMask.fillCircle(mex.getPosition(), 10, false));
+           .forEach(mex -> spawnCandidates.removeCircle(mex.getPosition(), 10));
 
-        placeBaseHydros(spawnMask);
+        placeBaseHydros(spawnMask, spawnCandidates);
 
         map.getSpawns()
            .stream()
            .filter(spawn -> spawnMask.inTeam(spawn.getPosition(), false))
-           .forEach(spawn -> spawnMask.fillCircle(spawn.getPosition(), 30f, false));
+           .forEach(spawn -> spawnCandidates.removeCircle(spawn.getPosition(), 30f));
 
         int numHydrosLeft = (hydroCount - map.getHydroCount()) / numSymPoints;
 
-        placeIndividualHydros(spawnMask, numHydrosLeft, hydroSpacing);
+        if (numHydrosLeft > 0) {
+            addHydros(spawnMask, spawnMask.getRandomCoordinates(spawnCandidates, hydroSpacing), numHydrosLeft);
+        }
     }
 
-    private void placeBaseHydros(BooleanMask spawnMask) {
+    private void placeBaseHydros(BooleanMask spawnMask, SpacedCandidates spawnCandidates) {
         boolean spawnHydro = random.nextBoolean();
         if (spawnHydro) {
             for (int i = 0;
@@ -57,40 +65,35 @@ public class HydroPlacer {
                                .getSpawnSymmetry()
                                .getNumSymPoints()) {
                 Spawn spawn = map.getSpawn(i);
-                BooleanMask baseHydro = new BooleanMask(spawnMask.getSize(), random.nextLong(),
-                                                        spawnMask.getSymmetrySettings());
-                baseHydro.fillCircle(spawn.getPosition(), 30f, true)
-                         .fillCircle(spawn.getPosition(), 10f, false)
-                         .multiply(spawnMask);
+                Random baseRandom = new Random(random.nextLong());
+                SpacedCandidates baseCandidates = spawnCandidates.selectCircle(spawn.getPosition(), 30f);
+                baseCandidates.removeCircle(spawn.getPosition(), 10f);
                 map.getSpawns()
                    .stream()
                    .filter(otherSpawn -> spawnMask.inTeam(otherSpawn.getPosition(), false))
-                   .forEach(otherSpawn -> baseHydro.fillCircle(otherSpawn.getPosition(), 16, false));
+                   .forEach(otherSpawn -> baseCandidates.removeCircle(otherSpawn.getPosition(), 16));
                 map.getHydros()
                    .stream()
                    .filter(hydro -> spawnMask.inTeam(hydro.getPosition(), false))
-                   .forEach(hydro -> baseHydro.fillCircle(hydro.getPosition(), 16, false));
-                placeIndividualHydros(baseHydro, 1, hydroSpacing);
+                   .forEach(hydro -> baseCandidates.removeCircle(hydro.getPosition(), 16));
+                addHydros(spawnMask, spawnMask.getRandomCoordinates(baseCandidates, hydroSpacing, baseRandom), 1);
             }
         }
     }
 
-    private void placeIndividualHydros(BooleanMask spawnMask, int numHydros, int hydroSpacing) {
-        if (numHydros > 0) {
-            List<Vector2> hydroLocations = spawnMask.getRandomCoordinates(hydroSpacing);
-            hydroLocations.stream().limit(numHydros).forEachOrdered(location -> {
-                int hydroId = map.getHydroCount() / spawnMask.getSymmetrySettings()
-                                                             .getSpawnSymmetry()
-                                                             .getNumSymPoints();
-                Marker hydro = new Marker(String.format("Hydro %d", hydroId),
-                                          new Vector3(location.roundToNearestHalfPoint()));
-                map.addHydro(hydro);
-                List<Vector2> symmetryPoints = spawnMask.getSymmetryPoints(hydro.getPosition(), SymmetryType.SPAWN);
-                symmetryPoints.forEach(Vector2::roundToNearestHalfPoint);
-                symmetryPoints.forEach(symmetryPoint -> map.addHydro(
-                        new Marker(String.format("Hydro %d sym %d", hydroId, symmetryPoints.indexOf(symmetryPoint)),
-                                   new Vector3(symmetryPoint))));
-            });
-        }
+    private void addHydros(BooleanMask spawnMask, List<Vector2> hydroLocations, int numHydros) {
+        hydroLocations.stream().limit(numHydros).forEachOrdered(location -> {
+            int hydroId = map.getHydroCount() / spawnMask.getSymmetrySettings()
+                                                         .getSpawnSymmetry()
+                                                         .getNumSymPoints();
+            Marker hydro = new Marker(String.format("Hydro %d", hydroId),
+                                      new Vector3(location.roundToNearestHalfPoint()));
+            map.addHydro(hydro);
+            List<Vector2> symmetryPoints = spawnMask.getSymmetryPoints(hydro.getPosition(), SymmetryType.SPAWN);
+            symmetryPoints.forEach(Vector2::roundToNearestHalfPoint);
+            symmetryPoints.forEach(symmetryPoint -> map.addHydro(
+                    new Marker(String.format("Hydro %d sym %d", hydroId, symmetryPoints.indexOf(symmetryPoint)),
+                               new Vector3(symmetryPoint))));
+        });
     }
 }
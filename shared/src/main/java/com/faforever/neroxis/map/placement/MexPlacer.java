@@ -6,6 +6,7 @@ import com.faforever.neroxis.map.SCMap;
 import com.faforever.neroxis.map.Spawn;
 import com.faforever.neroxis.map.SymmetryType;
 import com.faforever.neroxis.mask.BooleanMask;
+import com.faforever.neroxis.mask.SpacedCandidates;
 import com.faforever.neroxis.util.vector.Vector2;
 import com.faforever.neroxis.util.vector.Vector3;
 
@@ -21,6 +22,11 @@ public class MexPlacer {
         random = new Random(seed);
     }
 
+    /**
+     * Places the mexes in the true pixels of the masks. Areas are cleared around spawns and placed mexes through
+     * {@link SpacedCandidates} instead of filling circles on masks, and {@code spawnMask} ends with those areas
+     * cleared as callers reuse it for hydros
+     */
     public void placeMexes(int mexCount, BooleanMask spawnMask, BooleanMask spawnMaskWater) {
         map.getMexes().clear();
         int mexSpacing = (int) (map.getSize() / 8 * StrictMath.min(
@@ -30,46 +36,52 @@ public class MexPlacer {
         }
         spawnMask.limitToSymmetryRegion();
         spawnMaskWater.limitToSymmetryRegion();
+        SpacedCandidates spawnCandidates = spawnMask.getSpacedCandidates(mexSpacing);
         int numSymPoints = spawnMask.getSymmetrySettings().getSpawnSymmetry().getNumSymPoints();
 
         int previousMexCount;
-        placeBaseMexes(spawnMask);
+        placeBaseMexes(spawnMask, spawnCandidates);
         int numMexesLeft = (mexCount - map.getMexCount()) / numSymPoints;
         map.getSpawns()
            .stream()
            .filter(spawn -> spawnMask.inTeam(spawn.getPosition(), false))
-           .forEach(spawn -> spawnMask.fillCircle(spawn.getPosition(), 24, false));
+           .forEach(spawn -> spawnCandidates.removeCircle(spawn.getPosition(), 24));
 
         previousMexCount = map.getMexCount();
         if (numMexesLeft > 8 && numMexesLeft > map.getSpawnCount()) {
             int possibleExpMexCount = (random.nextInt(numMexesLeft / 2) + numMexesLeft / map.getSpawnCount());
-            placeMexExpansions(spawnMask, possibleExpMexCount, mexSpacing);
+            placeMexExpansions(spawnMask, spawnCandidates, possibleExpMexCount, mexSpacing);
 
-            spacePlacedMexes(spawnMask, mexSpacing, previousMexCount);
+            spacePlacedMexes(spawnMask, spawnCandidates, mexSpacing, previousMexCount);
             numMexesLeft = mexCount - map.getMexCount();
             previousMexCount = map.getMexCount();
         }
 
         int numPlayerMexes = (int) (numMexesLeft / map.getSpawnCount() / numSymPoints * .75f);
+        int size = spawnMask.getSize();
+        int edgeWidth = map.getSize() / 16;
         for (int i = 0; i < map.getSpawnCount(); i += spawnMask.getSymmetrySettings()
                                                                .getSpawnSymmetry()
                                                                .getNumSymPoints()) {
             Spawn spawn = map.getSpawn(i);
-            BooleanMask playerSpawnMask = new BooleanMask(spawnMask.getSize(), 0L, spawnMask.getSymmetrySettings());
-            playerSpawnMask.fillCircle(spawn.getPosition(), map.getSize() / 6f, true)
-                           .multiply(spawnMask)
-                           .fillEdge(map.getSize() / 16, false);
+            SpacedCandidates playerCandidates = spawnCandidates.selectCircle(spawn.getPosition(), map.getSize() / 6f)
+                                                               .select((x, y) -> x >= edgeWidth
+                                                                                 && y >= edgeWidth
+                                                                                 && x < size - edgeWidth
+                                                                                 && y < size - edgeWidth);
             map.getSpawns().forEach(otherSpawn -> {
                 if (otherSpawn.getTeamID() == spawn.getTeamID() && !spawn.equals(otherSpawn)) {
-                    playerSpawnMask.fillCircle(otherSpawn.getPosition(), map.getSize() / 8f, false);
+                    playerCandidates.removeCircle(otherSpawn.getPosition(), map.getSize() / 8f);
                 }
             });
+            // The player area mask used to be created with a seed of 0
+            Random playerRandom = new Random(0L);
             if (mexCount < 6) {
-                placeIndividualMexes(playerSpawnMask, numPlayerMexes, mexSpacing * 2);
+                placeIndividualMexes(spawnMask, playerCandidates, playerRandom, numPlayerMexes, mexSpacing * 2);
             } else {
-                placeIndividualMexes(playerSpawnMask, numPlayerMexes, mexSpacing);
+                placeIndividualMexes(spawnMask, playerCandidates, playerRandom, numPlayerMexes, mexSpacing);
             }
-            spacePlacedMexes(spawnMask, mexSpacing, previousMexCount);
+            spacePlacedMexes(spawnMask, spawnCandidates, mexSpacing, previousMexCount);
             previousMexCount = map.getMexCount();
         }
 
@@ -77,35 +89,42 @@ public class MexPlacer {
         map.getSpawns()
            .stream()
            .filter(spawn -> spawnMask.inTeam(spawn.getPosition(), false))
-           .forEach(spawn -> spawnMask.fillCircle(spawn.getPosition(), 48, false));
-        placeIndividualMexes(spawnMask, numMexesLeft, mexSpacing);
-        spacePlacedMexes(spawnMask, mexSpacing, previousMexCount);
+           .forEach(spawn -> spawnCandidates.removeCircle(spawn.getPosition(), 48));
+        if (numMexesLeft > 0) {
+            addMexes(spawnMask, spawnMask.getRandomCoordinates(spawnCandidates.copy(), mexSpacing), numMexesLeft);
+        }
+        spacePlacedMexes(spawnMask, spawnCandidates, mexSpacing, previousMexCount);
+        spawnMask.limitToCandidates(spawnCandidates);
 
         numMexesLeft = (mexCount - map.getMexCount()) / numSymPoints;
 
-        placeIndividualMexes(spawnMaskWater, StrictMath.min(numMexesLeft, 10), mexSpacing);
+        int numWaterMexes = StrictMath.min(numMexesLeft, 10);
+        if (numWaterMexes > 0) {
+            addMexes(spawnMaskWater, spawnMaskWater.getRandomCoordinates(mexSpacing), numWaterMexes);
+        }
     }
 
-    private void spacePlacedMexes(BooleanMask spawnMask, int mexSpacing, int previousMexCount) {
+    private void spacePlacedMexes(BooleanMask spawnMask, SpacedCandidates spawnCandidates, int mexSpacing,
+                                  int previousMexCount) {
         map.getMexes().stream().skip(previousMexCount).filter(mex -> spawnMask.inTeam(mex.getPosition(), false))
-           .forEach(mex -> spawnMask.fillCircle(mex.getPosition(), mexSpacing, false));
+           .forEach(mex -> spawnCandidates.removeCircle(mex.getPosition(), mexSpacing));
     }
 
-    private void placeBaseMexes(BooleanMask spawnMask) {
+    private void placeBaseMexes(BooleanMask spawnMask, SpacedCandidates spawnCandidates) {
         int numBaseMexes = (random.nextInt(3) + 3);
         for (int i = 0; i < map.getSpawnCount(); i += spawnMask.getSymmetrySettings()
                                                                .getSpawnSymmetry()
                                                                .getNumSymPoints()) {
             Spawn spawn = map.getSpawn(i);
-            BooleanMask baseMexes = new BooleanMask(spawnMask.getSize(), random.nextLong(), spawnMask.getSymmetrySettings());
-            baseMexes.fillCircle(spawn.getPosition(), 15, true)
-                     .fillCircle(spawn.getPosition(), 5, false)
-                     .multiply(spawnMask);
-            placeIndividualMexes(baseMexes, numBaseMexes, 10);
+            Random baseRandom = new Random(random.nextLong());
+            SpacedCandidates baseCandidates = spawnCandidates.selectCircle(spawn.getPosition(), 15);
+            baseCandidates.removeCircle(spawn.getPosition(), 5);
+            placeIndividualMexes(spawnMask, baseCandidates, baseRandom, numBaseMexes, 10);
         }
     }
 
-    private void placeMexExpansions(BooleanMask spawnMask, int possibleExpMexCount, int mexSpacing) {
+    private void placeMexExpansions(BooleanMask spawnMask, SpacedCandidates spawnCandidates, int possibleExpMexCount,
+                                    int mexSpacing) {
         Vector2 expLocation;
         int expMexCount;
         int expMexCountLeft = possibleExpMexCount;
@@ -114,18 +133,21 @@ public class MexPlacer {
         int expSpacing = (int) (map.getSize() / 4 * StrictMath.min(StrictMath.max(8f / possibleExpMexCount, .75f),
                                                                    1.75f));
 
-        BooleanMask expansionSpawnMask = new BooleanMask(spawnMask.getSize(), random.nextLong(),
-                                                         spawnMask.getSymmetrySettings());
-        expansionSpawnMask.invert().fillCenter(96, false).fillEdge(32, false).multiply(spawnMask);
+        Random expansionAreaRandom = new Random(random.nextLong());
+        // The center area depends on the symmetry so it is still filled on a mask, once per call
+        BooleanMask expansionArea = new BooleanMask(spawnMask.getSize(), null, spawnMask.getSymmetrySettings());
+        expansionArea.invert().fillCenter(96, false).fillEdge(32, false);
+        SpacedCandidates expansionCandidates = spawnCandidates.select(expansionArea::getPrimitive);
 
         map.getSpawns()
            .stream()
-           .filter(spawn -> expansionSpawnMask.inTeam(spawn.getPosition(), false))
-           .forEach(spawn -> expansionSpawnMask.fillCircle(spawn.getPosition(), map.getSize() / 6f, false));
+           .filter(spawn -> spawnMask.inTeam(spawn.getPosition(), false))
+           .forEach(spawn -> expansionCandidates.removeCircle(spawn.getPosition(), map.getSize() / 6f));
 
         expMexCount = StrictMath.min((random.nextInt(2) + 3), expMexCountLeft);
 
-        List<Vector2> expansionLocations = expansionSpawnMask.getRandomCoordinates(expSpacing);
+        List<Vector2> expansionLocations = spawnMask.getRandomCoordinates(expansionCandidates, expSpacing,
+                                                                          expansionAreaRandom);
 
         while (expMexCountLeft > expMexCount) {
             if (expansionLocations.size() == 0) {
@@ -134,7 +156,7 @@ public class MexPlacer {
 
             expLocation = expansionLocations.remove(0);
 
-            while (!isMexExpValid(expLocation, expSize, spawnMask)) {
+            while (!isMexExpValid(expLocation, expSize, spawnCandidates)) {
                 if (expansionLocations.size() == 0) {
                     expLocation = null;
                     break;
@@ -146,10 +168,8 @@ public class MexPlacer {
                 break;
             }
 
-            BooleanMask expansion = new BooleanMask(spawnMask.getSize(), random.nextLong(),
-                                                    spawnMask.getSymmetrySettings());
-            expansion.fillCircle(expLocation, expSize, true);
-            expansion.multiply(spawnMask);
+            Random expansionRandom = new Random(random.nextLong());
+            SpacedCandidates expansionMexCandidates = spawnCandidates.selectCircle(expLocation, expSize);
 
             int expID = map.getLargeExpansionMarkerCount() / spawnMask.getSymmetrySettings()
                                                                       .getSpawnSymmetry()
@@ -157,50 +177,53 @@ public class MexPlacer {
             if (expMexCount >= 3) {
                 map.addLargeExpansionMarker(
                         new AIMarker(String.format("Large Expansion Area %d", expID), expLocation, null));
-                List<Vector2> symmetryPoints = expansionSpawnMask.getSymmetryPoints(expLocation, SymmetryType.SPAWN);
+                List<Vector2> symmetryPoints = spawnMask.getSymmetryPoints(expLocation, SymmetryType.SPAWN);
                 symmetryPoints.forEach(Vector2::roundToNearestHalfPoint);
                 symmetryPoints.forEach(symmetryPoint -> map.addLargeExpansionMarker(new AIMarker(
                         String.format("Large Expansion Area %d sym %d", expID, symmetryPoints.indexOf(symmetryPoint)),
                         symmetryPoint, null)));
             } else {
                 map.addExpansionMarker(new AIMarker(String.format("Expansion Area %d", expID), expLocation, null));
-                List<Vector2> symmetryPoints = expansionSpawnMask.getSymmetryPoints(expLocation, SymmetryType.SPAWN);
+                List<Vector2> symmetryPoints = spawnMask.getSymmetryPoints(expLocation, SymmetryType.SPAWN);
                 symmetryPoints.forEach(Vector2::roundToNearestHalfPoint);
                 symmetryPoints.forEach(symmetryPoint -> map.addExpansionMarker(new AIMarker(
                         String.format("Expansion Area %d sym %d", expID, symmetryPoints.indexOf(symmetryPoint)),
                         symmetryPoint, null)));
             }
 
-            placeIndividualMexes(expansion, expMexCount, expMexSpacing);
-            spawnMask.fillCircle(expLocation, mexSpacing * 3f * expMexCount / 4f, false);
+            placeIndividualMexes(spawnMask, expansionMexCandidates, expansionRandom, expMexCount, expMexSpacing);
+            spawnCandidates.removeCircle(expLocation, mexSpacing * 3f * expMexCount / 4f);
             expMexCountLeft -= expMexCount;
         }
     }
 
-    private void placeIndividualMexes(BooleanMask spawnMask, int numMexes, int mexSpacing) {
+    private void placeIndividualMexes(BooleanMask spawnMask, SpacedCandidates candidates, Random random, int numMexes,
+                                      int mexSpacing) {
         if (numMexes > 0) {
-            List<Vector2> mexLocations = spawnMask.getRandomCoordinates(mexSpacing);
-            mexLocations.stream().limit(numMexes).forEachOrdered(location -> {
-                int mexID = map.getMexCount() / spawnMask.getSymmetrySettings().getSpawnSymmetry().getNumSymPoints();
-                Marker mex = new Marker(String.format("Mex %d", mexID), new Vector3(location.roundToNearestHalfPoint()));
-                map.addMex(mex);
-                List<Vector2> symmetryPoints = spawnMask.getSymmetryPoints(mex.getPosition(), SymmetryType.SPAWN);
-                symmetryPoints.forEach(Vector2::roundToNearestHalfPoint);
-                symmetryPoints.forEach(symmetryPoint -> map.addMex(new Marker(String.format("Mex %d sym %d", mexID, symmetryPoints.indexOf(symmetryPoint)), new Vector3(symmetryPoint))));
-            });
+            addMexes(spawnMask, spawnMask.getRandomCoordinates(candidates, mexSpacing, random), numMexes);
         }
     }
 
-    private boolean isMexExpValid(Vector2 location, float size, BooleanMask spawnMask) {
+    private void addMexes(BooleanMask spawnMask, List<Vector2> mexLocations, int numMexes) {
+        mexLocations.stream().limit(numMexes).forEachOrdered(location -> {
+            int mexID = map.getMexCount() / spawnMask.getSymmetrySettings().getSpawnSymmetry().getNumSymPoints();
+            Marker mex = new Marker(String.format("Mex %d", mexID), new Vector3(location.roundToNearestHalfPoint()));
+            map.addMex(mex);
+            List<Vector2> symmetryPoints = spawnMask.getSymmetryPoints(mex.getPosition(), SymmetryType.SPAWN);
+            symmetryPoints.forEach(Vector2::roundToNearestHalfPoint);
+            symmetryPoints.forEach(symmetryPoint -> map.addMex(new Marker(String.format("Mex %d sym %d", mexID, symmetryPoints.indexOf(symmetryPoint)), new Vector3(symmetryPoint))));
+        });
+    }
+
+    private boolean isMexExpValid(Vector2 location, float size, SpacedCandidates spawnCandidates) {
         float count = 0;
 
         for (int dx = 0; dx < size; dx++) {
+            int x = StrictMath.round(location.getX() + (dx - size / 2));
             for (int dy = 0; dy < size; dy++) {
-                Vector2 loc = new Vector2(location).add(dx - size / 2, dy - size / 2);
-                if (spawnMask.inBounds(loc)) {
-                    if (spawnMask.get(loc)) {
-                        ++count;
-                    }
+                int y = StrictMath.round(location.getY() + (dy - size / 2));
+                if (spawnCandidates.isRemaining(x, y)) {
+                    ++count;
                 }
             }
         }
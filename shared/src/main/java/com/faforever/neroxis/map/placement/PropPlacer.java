@@ -23,23 +23,36 @@ public class PropPlacer {
         placeProps(spawnMask, paths, separation, separation);
     }
 
+    /**
+     * Places props spaced between the separations on the mask and mirrors them to the symmetry points. All props are
+     * collected first and added to the map in one pass
+     */
     public void placeProps(BooleanMask spawnMask, String[] paths, float minSeparation, float maxSeparation) {
         if (paths != null && paths.length > 0) {
             spawnMask.limitToSymmetryRegion();
             List<Vector2> coordinates = spawnMask.getRandomCoordinates(minSeparation, maxSeparation);
-            coordinates.forEach((location) -> {
-                location.roundToNearestHalfPoint();
-                Prop prop = new Prop(paths[random.nextInt(paths.length)], location,
-                                     random.nextFloat() * (float) StrictMath.PI);
-                map.addProp(prop);
-                List<Vector2> symmetryPoints = spawnMask.getSymmetryPoints(prop.getPosition(), SymmetryType.SPAWN);
-                symmetryPoints.forEach(Vector2::roundToNearestHalfPoint);
-                ArrayList<Float> symmetryRotation = spawnMask.getSymmetryRotation(prop.getRotation());
-                for (int i = 0; i < symmetryPoints.size(); i++) {
-                    Prop symProp = new Prop(prop.getPath(), symmetryPoints.get(i), symmetryRotation.get(i));
-                    map.addProp(symProp);
-                }
+            List<Prop> props = new ArrayList<>(coordinates.size() * spawnMask.getSymmetrySettings()
+                                                                             .getSpawnSymmetry()
+                                                                             .getNumSymPoints());
+            coordinates.forEach(location -> {
+                String path = paths[random.nextInt(paths.length)];
+                float rotation = random.nextFloat() * (float) StrictMath.PI;
+                addSymmetricProps(props, spawnMask, path, location, rotation);
             });
+            map.addProps(props);
+        }
+    }
+
+    private void addSymmetricProps(List<Prop> props, BooleanMask spawnMask, String path, Vector2 location,
+                                   float rotation) {
+        location.roundToNearestHalfPoint();
+        Prop prop = new Prop(path, location, rotation);
+        props.add(prop);
+        List<Vector2> symmetryPoints = spawnMask.getSymmetryPoints(prop.getPosition(), SymmetryType.SPAWN);
+        ArrayList<Float> symmetryRotation = spawnMask.getSymmetryRotation(prop.getRotation());
+        for (int i = 0; i < symmetryPoints.size(); i++) {
+            Vector2 symmetryPoint = symmetryPoints.get(i).roundToNearestHalfPoint();
+            props.add(new Prop(path, symmetryPoint, symmetryRotation.get(i)));
         }
     }
 }
@@ -49,10 +49,8 @@ public class SpawnPlacer {
 
             addSpawn(location, symmetryPoints);
             if (spawnMask.getSymmetrySettings().getSpawnSymmetry().getNumSymPoints() != 1) {
-                BooleanMask nextSpawn = new BooleanMask(spawnMask.getSize(), random.nextLong(),
-                                                        spawnMask.getSymmetrySettings());
-                nextSpawn.fillCircle(location, teammateSeparation * 2, true).multiply(spawnMask);
-                location = nextSpawn.getRandomPosition();
+                location = spawnMask.getRandomPositionInCircle(location, teammateSeparation * 2,
+                                                               new Random(random.nextLong()));
                 if (location == null) {
                     location = spawnMask.getRandomPosition();
                 }
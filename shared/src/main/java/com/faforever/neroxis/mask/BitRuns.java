@@ -0,0 +1,173 @@
+package com.faforever.neroxis.mask;
+
+import com.faforever.neroxis.util.ScratchArrays;
+import com.faforever.neroxis.util.functional.BiIntConsumer;
+
+import java.util.Arrays;
+
+/**
+ * Run length form of the pixels of a boolean mask that have a given value. Every row stores the sorted start and end
+ * of its runs, so masks that are mostly one value take a handful of ints per row and can be walked and combined run
+ * by run instead of pixel by pixel
+ */
+final class BitRuns {
+    private static final int BOOLEANS_PER_LONG = 64;
+    private final int size;
+    private final int[] rowOffsets;
+    private final int[] bounds;
+    private final int runCount;
+
+    private BitRuns(int size, int[] rowOffsets, int[] bounds, int runCount) {
+        this.size = size;
+        this.rowOffsets = rowOffsets;
+        this.bounds = bounds;
+        this.runCount = runCount;
+    }
+
+    /**
+     * Collects the runs of pixels equal to {@code value} from the bitset of a mask of {@code size}
+     *
+     * @return the runs or null if there are more than {@code maxRunCount}
+     */
+    static BitRuns of(long[] bits, int size, boolean value, int maxRunCount) {
+        int pixelCount = size * size;
+        int[] rowOffsets = new int[size + 1];
+        int[] bounds = new int[StrictMath.min(2 * maxRunCount, 2 * size + 2)];
+        int boundCount = 0;
+        int row = 0;
+        int position = 0;
+        while (position < pixelCount) {
+            int start = nextIndexOf(bits, position, value, pixelCount);
+            if (start == pixelCount) {
+                break;
+            }
+            int end = nextIndexOf(bits, start, !value, pixelCount);
+            position = end;
+            while (start < end) {
+                int startRow = start / size;
+                while (row < startRow) {
+                    rowOffsets[++row] = boundCount;
+                }
+                int rowEnd = (startRow + 1) * size;
+                if (boundCount == 2 * maxRunCount) {
+                    return null;
+                }
+                if (boundCount == bounds.length) {
+                    bounds = Arrays.copyOf(bounds, StrictMath.min(2 * maxRunCount, bounds.length * 2));
+                }
+                bounds[boundCount++] = start - startRow * size;
+                bounds[boundCount++] = StrictMath.min(end, rowEnd) - startRow * size;
+                start = rowEnd;
+            }
+        }
+        while (row < size) {
+            rowOffsets[++row] = boundCount;
+        }
+        return new BitRuns(size, rowOffsets, bounds, boundCount / 2);
+    }
+
+    private static int nextIndexOf(long[] bits, int from, boolean value, int limit) {
+        int wordIndex = from / BOOLEANS_PER_LONG;
+        long word = (value ? bits[wordIndex] : ~bits[wordIndex]) & (-1L << from);
+        while (word == 0) {
+            wordIndex++;
+            if (wordIndex * BOOLEANS_PER_LONG >= limit) {
+                return limit;
+            }
+            word = value ? bits[wordIndex] : ~bits[wordIndex];
+        }
+        return StrictMath.min(limit, wordIndex * BOOLEANS_PER_LONG + Long.numberOfTrailingZeros(word));
+    }
+
+    int getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * Calls the action with every pixel of the runs that has a neighbor outside the runs, in row order. Pixels on the
+     * mask border only compare against the neighbors inside the mask
+     */
+    void forEachEdge(BiIntConsumer action) {
+        int[] fullRow = {0, size};
+        int[] inner = ScratchArrays.borrowInts(2 * size + 2);
+        int[] xEdges = ScratchArrays.borrowInts(2 * size + 2);
+        int[] yEdges = ScratchArrays.borrowInts(2 * size + 2);
+        int[] edges = ScratchArrays.borrowInts(4 * size + 4);
+        for (int x = 0; x < size; x++) {
+            int rowFrom = rowOffsets[x];
+            int rowTo = rowOffsets[x + 1];
+            if (rowFrom == rowTo) {
+                continue;
+            }
+            int innerCount = combine(x > 0 ? bounds : fullRow, x > 0 ? rowOffsets[x - 1] : 0,
+                                     x > 0 ? rowOffsets[x] : 2, x < size - 1 ? bounds : fullRow,
+                                     x < size - 1 ? rowOffsets[x + 1] : 0, x < size - 1 ? rowOffsets[x + 2] : 2,
+                                     true, false, inner);
+            int xEdgeCount = combine(bounds, rowFrom, rowTo, inner, 0, innerCount, false, true, xEdges);
+            int yEdgeCount = 0;
+            for (int i = rowFrom; i < rowTo; i += 2) {
+                int start = bounds[i];
+                int end = bounds[i + 1];
+                if (start > 0) {
+                    yEdges[yEdgeCount++] = start;
+                    yEdges[yEdgeCount++] = start + 1;
+                }
+                if (end < size && (end - 1 > start || start == 0)) {
+                    yEdges[yEdgeCount++] = end - 1;
+                    yEdges[yEdgeCount++] = end;
+                }
+            }
+            int edgeCount = combine(xEdges, 0, xEdgeCount, yEdges, 0, yEdgeCount, false, false, edges);
+            for (int i = 0; i < edgeCount; i += 2) {
+                for (int y = edges[i]; y < edges[i + 1]; y++) {
+                    action.accept(x, y);
+                }
+            }
+        }
+        ScratchArrays.release(inner);
+        ScratchArrays.release(xEdges);
+        ScratchArrays.release(yEdges);
+        ScratchArrays.release(edges);
+    }
+
+    /**
+     * Sweeps over the run bounds of two rows and writes the runs of the combination to {@code out}. The combination
+     * is the intersection if {@code intersect} is set and the union otherwise, with the second row complemented if
+     * {@code subtract} is set
+     *
+     * @return the number of bounds written
+     */
+    private static int combine(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo, boolean intersect,
+                               boolean subtract, int[] out) {
+        int count = 0;
+        int ia = aFrom;
+        int ib = bFrom;
+        boolean inA = false;
+        boolean inB = false;
+        boolean inOut = false;
+        while (ia < aTo || ib < bTo) {
+            int nextA = ia < aTo ? a[ia] : Integer.MAX_VALUE;
+            int nextB = ib < bTo ? b[ib] : Integer.MAX_VALUE;
+            int position = StrictMath.min(nextA, nextB);
+            if (nextA == position) {
+                inA = !inA;
+                ia++;
+            }
+            if (nextB == position) {
+                inB = !inB;
+                ib++;
+            }
+            boolean inSecond = subtract != inB;
+            boolean now = intersect || subtract ? inA && inSecond : inA || inSecond;
+            if (now != inOut) {
+                if (count > 0 && now && out[count - 1] == position) {
+                    count--;
+                } else {
+                    out[count++] = position;
+                }
+                inOut = now;
+            }
+        }
+        return count;
+    }
+}
@@ -6,22 +6,25 @@ import com.faforever.neroxis.map.Symmetry;
 import com.faforever.neroxis.map.SymmetrySettings;
 import com.faforever.neroxis.map.SymmetryType;
 import com.faforever.neroxis.util.BezierCurve;
+import com.faforever.neroxis.util.ScratchArrays;
+import com.faforever.neroxis.util.XxHash64;
 import com.faforever.neroxis.util.functional.BiIntBooleanConsumer;
+import com.faforever.neroxis.util.functional.BiIntConsumer;
 import com.faforever.neroxis.util.functional.ToBooleanBiIntFunction;
 import com.faforever.neroxis.util.vector.Vector2;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
 import java.nio.ByteBuffer;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.LongBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 
 import static com.faforever.neroxis.brushes.Brushes.loadBrush;
@@ -137,14 +140,15 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
     @Override
     public BooleanMask blur(int radius, BooleanMask other) {
         assertCompatibleMask(other);
-        int[][] innerCount = getInnerCount();
         return enqueue(dependencies -> {
             BooleanMask limiter = (BooleanMask) dependencies.get(0);
+            int[][] innerCount = getInnerCount();
             apply((x, y) -> {
                 if (limiter.get(x, y)) {
                     setPrimitive(x, y, transformAverage(calculateAreaAverageAsInts(radius, x, y, innerCount), .5f));
                 }
             });
+            ScratchArrays.release(innerCount);
         }, other);
     }
 
@@ -164,6 +168,24 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
         });
     }
 
+    @Override
+    public long getSpillBytes() {
+        return (long) mask.length * Long.BYTES;
+    }
+
+    @Override
+    protected void writeSpill(ByteBuffer buffer) {
+        buffer.asLongBuffer().put(mask);
+        mask = null;
+    }
+
+    @Override
+    protected void readSpill(ByteBuffer buffer, int size) {
+        LongBuffer spillBuffer = buffer.asLongBuffer();
+        mask = new long[spillBuffer.remaining()];
+        spillBuffer.get(mask);
+    }
+
     @Override
     protected int getImmediateSize() {
         return maskBooleanSize;
@@ -187,16 +209,15 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
     }
 
     @Override
-    public String toHash() throws NoSuchAlgorithmException {
-        int size = getSize();
-        ByteBuffer bytes = ByteBuffer.allocate(size * size);
-        loopWithSymmetry(SymmetryType.SPAWN, (x, y) -> bytes.put(getPrimitive(x, y) ? (byte) 1 : 0));
-        byte[] data = MessageDigest.getInstance("MD5").digest(bytes.array());
-        StringBuilder stringBuilder = new StringBuilder();
-        for (byte datum : data) {
-            stringBuilder.append(String.format("%02x", datum));
+    protected void addToHash(XxHash64 hash) {
+        int bitCount = getImmediateSize() * getImmediateSize();
+        int fullWords = bitCount / BOOLEANS_PER_LONG;
+        hash.update(mask, 0, fullWords);
+        int remainingBits = bitCount % BOOLEANS_PER_LONG;
+        // Bits past the end of the mask are not kept clean by whole word operations so they are excluded
+        if (remainingBits != 0) {
+            hash.update(mask[fullWords] & ((SINGLE_BIT_VALUE << remainingBits) - 1));
         }
-        return stringBuilder.toString();
     }
 
     @Override
@@ -236,9 +257,9 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
             } else if (oldSize != newSize) {
                 long[] oldMask = mask;
                 initializeMask(newSize);
-                Map<Integer, Integer> coordinateMap = getSymmetricScalingCoordinateMap(oldSize, newSize);
+                int[] coordinateMap = getSymmetricScalingCoordinateMap(oldSize, newSize);
                 applyWithSymmetry(SymmetryType.SPAWN, (x, y) -> {
-                    boolean value = getBit(coordinateMap.get(x), coordinateMap.get(y), oldSize, oldMask);
+                    boolean value = getBit(coordinateMap[x], coordinateMap[y], oldSize, oldMask);
                     applyAtSymmetryPoints(x, y, SymmetryType.SPAWN, (sx, sy) -> setPrimitive(sx, sy, value));
                 });
             }
@@ -267,15 +288,18 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
      */
     @GraphMethod
     public BooleanMask blur(int radius, float density) {
-        int[][] innerCount = getInnerCount();
-        return apply((x, y) -> setPrimitive(x, y, transformAverage(calculateAreaAverageAsInts(radius, x, y, innerCount),
-                                                                   density)));
+        return enqueue(() -> {
+            int[][] innerCount = getInnerCount();
+            apply((x, y) -> setPrimitive(x, y, transformAverage(calculateAreaAverageAsInts(radius, x, y, innerCount),
+                                                                density)));
+            ScratchArrays.release(innerCount);
+        });
     }
 
     @Override
     protected int[][] getInnerCount() {
         int size = getSize();
-        int[][] innerCount = new int[size][size];
+        int[][] innerCount = ScratchArrays.borrowIntGrid(size);
         apply((x, y) -> calculateInnerValue(innerCount, x, y, getPrimitive(x, y) ? 1 : 0));
         return innerCount;
     }
@@ -292,11 +316,10 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
     @Override
     public BooleanMask add(BooleanMask other) {
         assertCompatibleMask(other);
-        return enqueue(dependencies -> {
-            BooleanMask source = (BooleanMask) dependencies.get(0);
-            for (int i = 0; i < mask.length; i++) {
-                mask[i] |= source.mask[i];
-            }
+        return enqueueElementWise(dependencies -> {
+            long[] target = mask;
+            long[] source = ((BooleanMask) dependencies.get(0)).mask;
+            return i -> target[i] |= source[i];
         }, other);
     }
 
@@ -308,28 +331,22 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
     @Override
     public BooleanMask add(BooleanMask other, Boolean value) {
         assertCompatibleMask(other);
-        boolean val = value;
-        return enqueue(dependencies -> {
-            BooleanMask source = (BooleanMask) dependencies.get(0);
-            apply((x, y) -> {
-                if (source.getPrimitive(x, y)) {
-                    addPrimitiveAt(x, y, val);
-                }
-            });
+        long valueBits = value ? -1L : 0L;
+        return enqueueElementWise(dependencies -> {
+            long[] target = mask;
+            long[] source = ((BooleanMask) dependencies.get(0)).mask;
+            return i -> target[i] |= source[i] & valueBits;
         }, other);
     }
 
     @Override
     public BooleanMask add(BooleanMask other, BooleanMask values) {
         assertCompatibleMask(other);
-        return enqueue(dependencies -> {
-            BooleanMask source = (BooleanMask) dependencies.get(0);
-            BooleanMask val = (BooleanMask) dependencies.get(1);
-            apply((x, y) -> {
-                if (source.getPrimitive(x, y)) {
-                    addPrimitiveAt(x, y, val.getPrimitive(x, y));
-                }
-            });
+        return enqueueElementWise(dependencies -> {
+            long[] target = mask;
+            long[] source = ((BooleanMask) dependencies.get(0)).mask;
+            long[] valueBits = ((BooleanMask) dependencies.get(1)).mask;
+            return i -> target[i] |= source[i] & valueBits[i];
         }, other, values);
     }
 
@@ -356,39 +373,32 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
     @Override
     public BooleanMask subtract(BooleanMask other) {
         assertCompatibleMask(other);
-        return enqueue(dependencies -> {
-            BooleanMask source = (BooleanMask) dependencies.get(0);
-            for (int i = 0; i < mask.length; i++) {
-                mask[i] &= ~source.mask[i];
-            }
+        return enqueueElementWise(dependencies -> {
+            long[] target = mask;
+            long[] source = ((BooleanMask) dependencies.get(0)).mask;
+            return i -> target[i] &= ~source[i];
         }, other);
     }
 
     @Override
     public BooleanMask subtract(BooleanMask other, Boolean value) {
         assertCompatibleMask(other);
-        boolean val = value;
-        return enqueue(dependencies -> {
-            BooleanMask source = (BooleanMask) dependencies.get(0);
-            apply((x, y) -> {
-                if (source.getPrimitive(x, y)) {
-                    subtractPrimitiveAt(x, y, val);
-                }
-            });
+        long valueBits = value ? -1L : 0L;
+        return enqueueElementWise(dependencies -> {
+            long[] target = mask;
+            long[] source = ((BooleanMask) dependencies.get(0)).mask;
+            return i -> target[i] &= ~(source[i] & valueBits);
         }, other);
     }
 
     @Override
     public BooleanMask subtract(BooleanMask other, BooleanMask values) {
         assertCompatibleMask(other);
-        return enqueue(dependencies -> {
-            BooleanMask source = (BooleanMask) dependencies.get(0);
-            BooleanMask val = (BooleanMask) dependencies.get(1);
-            apply((x, y) -> {
-                if (source.getPrimitive(x, y)) {
-                    subtractPrimitiveAt(x, y, val.getPrimitive(x, y));
-                }
-            });
+        return enqueueElementWise(dependencies -> {
+            long[] target = mask;
+            long[] source = ((BooleanMask) dependencies.get(0)).mask;
+            long[] valueBits = ((BooleanMask) dependencies.get(1)).mask;
+            return i -> target[i] &= ~(source[i] & valueBits[i]);
         }, other, values);
     }
 
@@ -405,11 +415,10 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
     @Override
     public BooleanMask multiply(BooleanMask other) {
         assertCompatibleMask(other);
-        return enqueue(dependencies -> {
-            BooleanMask source = (BooleanMask) dependencies.get(0);
-            for (int i = 0; i < mask.length; i++) {
-                mask[i] &= source.mask[i];
-            }
+        return enqueueElementWise(dependencies -> {
+            long[] target = mask;
+            long[] source = ((BooleanMask) dependencies.get(0)).mask;
+            return i -> target[i] &= source[i];
         }, other);
     }
 
@@ -421,28 +430,22 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
     @Override
     public BooleanMask multiply(BooleanMask other, Boolean value) {
         assertCompatibleMask(other);
-        boolean val = value;
-        return enqueue(dependencies -> {
-            BooleanMask source = (BooleanMask) dependencies.get(0);
-            apply((x, y) -> {
-                if (source.getPrimitive(x, y)) {
-                    multiplyPrimitiveAt(x, y, val);
-                }
-            });
+        long valueBits = value ? -1L : 0L;
+        return enqueueElementWise(dependencies -> {
+            long[] target = mask;
+            long[] source = ((BooleanMask) dependencies.get(0)).mask;
+            return i -> target[i] &= ~(source[i] & ~valueBits);
         }, other);
     }
 
     @Override
     public BooleanMask multiply(BooleanMask other, BooleanMask values) {
         assertCompatibleMask(other);
-        return enqueue(dependencies -> {
-            BooleanMask source = (BooleanMask) dependencies.get(0);
-            BooleanMask val = (BooleanMask) dependencies.get(1);
-            apply((x, y) -> {
-                if (source.getPrimitive(x, y)) {
-                    multiplyPrimitiveAt(x, y, val.getPrimitive(x, y));
-                }
-            });
+        return enqueueElementWise(dependencies -> {
+            long[] target = mask;
+            long[] source = ((BooleanMask) dependencies.get(0)).mask;
+            long[] valueBits = ((BooleanMask) dependencies.get(1)).mask;
+            return i -> target[i] &= ~(source[i] & ~valueBits[i]);
         }, other, values);
     }
 
@@ -459,11 +462,10 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
     @Override
     public BooleanMask divide(BooleanMask other) {
         assertCompatibleMask(other);
-        return enqueue(dependencies -> {
-            BooleanMask source = (BooleanMask) dependencies.get(0);
-            for (int i = 0; i < mask.length; i++) {
-                mask[i] ^= source.mask[i];
-            }
+        return enqueueElementWise(dependencies -> {
+            long[] target = mask;
+            long[] source = ((BooleanMask) dependencies.get(0)).mask;
+            return i -> target[i] ^= source[i];
         }, other);
     }
 
@@ -475,28 +477,22 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
     @Override
     public BooleanMask divide(BooleanMask other, Boolean value) {
         assertCompatibleMask(other);
-        boolean val = value;
-        return enqueue(dependencies -> {
-            BooleanMask source = (BooleanMask) dependencies.get(0);
-            apply((x, y) -> {
-                if (source.getPrimitive(x, y)) {
-                    dividePrimitiveAt(x, y, val);
-                }
-            });
+        long valueBits = value ? -1L : 0L;
+        return enqueueElementWise(dependencies -> {
+            long[] target = mask;
+            long[] source = ((BooleanMask) dependencies.get(0)).mask;
+            return i -> target[i] ^= source[i] & valueBits;
         }, other);
     }
 
     @Override
     public BooleanMask divide(BooleanMask other, BooleanMask value) {
         assertCompatibleMask(other);
-        return enqueue(dependencies -> {
-            BooleanMask source = (BooleanMask) dependencies.get(0);
-            BooleanMask val = (BooleanMask) dependencies.get(1);
-            apply((x, y) -> {
-                if (source.getPrimitive(x, y)) {
-                    dividePrimitiveAt(x, y, val.getPrimitive(x, y));
-                }
-            });
+        return enqueueElementWise(dependencies -> {
+            long[] target = mask;
+            long[] source = ((BooleanMask) dependencies.get(0)).mask;
+            long[] valueBits = ((BooleanMask) dependencies.get(1)).mask;
+            return i -> target[i] ^= source[i] & valueBits[i];
         }, other, value);
     }
 
@@ -512,14 +508,73 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
 
     public int getCount() {
         assertNotPipelined();
-        int count = 0;
         int size = getSize();
-        for (long l : mask) {
-            count += Long.bitCount(l);
+        int pixelCount = size * size;
+        int fullWordCount = pixelCount / BOOLEANS_PER_LONG;
+        int count = 0;
+        for (int i = 0; i < fullWordCount; i++) {
+            count += Long.bitCount(mask[i]);
+        }
+        // The bits after the last pixel are not part of the mask and may be set by word wise operations
+        int trailingBitCount = pixelCount % BOOLEANS_PER_LONG;
+        if (trailingBitCount > 0) {
+            count += Long.bitCount(mask[fullWordCount] & ((SINGLE_BIT_VALUE << trailingBitCount) - 1));
         }
         return count;
     }
 
+    /**
+     * Calls the action with the bit index of every pixel from {@code from} until {@code to} that is equal to
+     * {@code value}, in row order. Words without such pixels are skipped as a whole
+     */
+    private void forEachIndexEqualTo(boolean value, int from, int to, IntConsumer action) {
+        for (int wordIndex = from / BOOLEANS_PER_LONG; wordIndex * BOOLEANS_PER_LONG < to; wordIndex++) {
+            int wordStart = wordIndex * BOOLEANS_PER_LONG;
+            long word = value ? mask[wordIndex] : ~mask[wordIndex];
+            if (wordStart < from) {
+                word &= -1L << from;
+            }
+            while (word != 0) {
+                int index = wordStart + Long.numberOfTrailingZeros(word);
+                if (index >= to) {
+                    return;
+                }
+                action.accept(index);
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the bit indices {@code x * size + y} of all pixels equal to {@code value} whose coordinates are both
+     * multiples of {@code spacing}, in row order
+     */
+    public int[] getAllIndicesEqualTo(boolean value, int spacing) {
+        assertNotPipelined();
+        int size = getSize();
+        int trueCount = getCount();
+        int[] indices = new int[value ? trueCount : size * size - trueCount];
+        int[] count = new int[1];
+        if (spacing == 1) {
+            forEachIndexEqualTo(value, 0, size * size, index -> indices[count[0]++] = index);
+        } else {
+            for (int x = 0; x < size; x += spacing) {
+                int rowStart = x * size;
+                forEachIndexEqualTo(value, rowStart, rowStart + size, index -> {
+                    if ((index - rowStart) % spacing == 0) {
+                        indices[count[0]++] = index;
+                    }
+                });
+            }
+        }
+        return count[0] == indices.length ? indices : Arrays.copyOf(indices, count[0]);
+    }
+
+    private Vector2 getCoordinate(int index) {
+        int size = getSize();
+        return new Vector2(index / size, index % size);
+    }
+
     protected BooleanMask add(ToBooleanBiIntFunction valueFunction) {
         return apply((x, y) -> addPrimitiveAt(x, y, valueFunction.apply(x, y)));
     }
@@ -794,13 +849,17 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
      */
     @GraphMethod
     public BooleanMask invert() {
-        return enqueue(() -> {
-            for (int i = 0; i < mask.length; i++) {
-                mask[i] = ~mask[i];
-            }
+        return enqueueElementWise(dependencies -> {
+            long[] target = mask;
+            return i -> target[i] = ~target[i];
         });
     }
 
+    @Override
+    protected int getElementBlockCount() {
+        return mask.length;
+    }
+
     /**
      * Set all pixels within the circle defined by the {@code radius} around true pixels to true
      *
@@ -810,12 +869,8 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
     public BooleanMask inflate(float radius) {
         return enqueue(() -> {
             long[] maskCopy = getMaskCopy();
-            apply((x, y) -> {
-                if (getPrimitive(x, y) && isEdge(x, y)) {
-                    markInRadius(radius, maskCopy, x, y, true);
-                }
-            });
-            mask = maskCopy;
+            forEachEdge(true, (x, y) -> markInRadius(radius, maskCopy, x, y, true));
+            commitMaskCopy(maskCopy);
         });
     }
 
@@ -828,15 +883,83 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
     public BooleanMask deflate(float radius) {
         return enqueue(() -> {
             long[] maskCopy = getMaskCopy();
+            forEachEdge(false, (x, y) -> markInRadius(radius, maskCopy, x, y, false));
+            commitMaskCopy(maskCopy);
+        });
+    }
+
+    /**
+     * Set all pixels within the circle defined by the {@code radius} around true pixels to true, working on a grid
+     * of {@code workingSize}. Each working pixel covers a block of pixels and is true when any of them is, so the
+     * inflated border is exact to about one working pixel while large radii cost a fraction of {@link #inflate(float)}.
+     * Falls back to {@link #inflate(float)} when the working size is not smaller than the mask
+     *
+     * @param radius      radius around true pixels to set to true
+     * @param workingSize size of the grid to inflate on
+     */
+    @GraphMethod
+    public BooleanMask inflate(float radius, int workingSize) {
+        return enqueue(() -> {
+            int size = getSize();
+            if (workingSize >= size) {
+                inflate(radius);
+                return;
+            }
+            BooleanMask coarse = getCoarseCopy(workingSize, true);
+            coarse.inflate(radius * workingSize / size);
+            int[] coordinateMap = getSymmetricScalingCoordinateMap(workingSize, size);
             apply((x, y) -> {
-                if (!getPrimitive(x, y) && isEdge(x, y)) {
-                    markInRadius(radius, maskCopy, x, y, false);
+                if (coarse.getPrimitive(coordinateMap[x], coordinateMap[y])) {
+                    setPrimitive(x, y, true);
                 }
             });
-            mask = maskCopy;
         });
     }
 
+    /**
+     * Set all pixels within the circle defined by the {@code radius} around false pixels to false, working on a grid
+     * of {@code workingSize}. Each working pixel covers a block of pixels and is false when any of them is, so the
+     * deflated border is exact to about one working pixel while large radii cost a fraction of {@link #deflate(float)}.
+     * Falls back to {@link #deflate(float)} when the working size is not smaller than the mask
+     *
+     * @param radius      radius around false pixels to set to false
+     * @param workingSize size of the grid to deflate on
+     */
+    @GraphMethod
+    public BooleanMask deflate(float radius, int workingSize) {
+        return enqueue(() -> {
+            int size = getSize();
+            if (workingSize >= size) {
+                deflate(radius);
+                return;
+            }
+            BooleanMask coarse = getCoarseCopy(workingSize, false);
+            coarse.deflate(radius * workingSize / size);
+            int[] coordinateMap = getSymmetricScalingCoordinateMap(workingSize, size);
+            apply((x, y) -> {
+                if (!coarse.getPrimitive(coordinateMap[x], coordinateMap[y])) {
+                    setPrimitive(x, y, false);
+                }
+            });
+        });
+    }
+
+    /**
+     * Returns an immediate mask of {@code workingSize} where each pixel holds {@code value} when any pixel of the
+     * block it covers in this mask does
+     */
+    private BooleanMask getCoarseCopy(int workingSize, boolean value) {
+        int[] coordinateMap = getSymmetricScalingCoordinateMap(workingSize, getSize());
+        BooleanMask coarse = new BooleanMask(workingSize, null, symmetrySettings, getName() + "Coarse", false);
+        coarse.fill(!value);
+        loop((x, y) -> {
+            if (getPrimitive(x, y) == value) {
+                coarse.setPrimitive(coordinateMap[x], coordinateMap[y], value);
+            }
+        });
+        return coarse;
+    }
+
     /**
      * Starting from a random point simulate weighted brownian motion by choosing a random neighbor to visit
      * each neighbor visited is set to true. The first direction chosen will be more likely to be selected in future iterations
@@ -901,18 +1024,30 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
                     setBit(bitIndex(x, y, size), false, maskCopy);
                 }
             });
-            mask = maskCopy;
+            commitMaskCopy(maskCopy);
         });
     }
 
+    /**
+     * Returns a scratch copy of the mask bits to be written back with {@link #commitMaskCopy}
+     */
     private long[] getMaskCopy() {
         assertNotPipelined();
         int arraySize = mask.length;
-        long[] maskCopy = new long[arraySize];
+        long[] maskCopy = ScratchArrays.borrowLongs(arraySize);
         System.arraycopy(mask, 0, maskCopy, 0, arraySize);
         return maskCopy;
     }
 
+    /**
+     * Makes the scratch copy the mask bits and returns the previous bits to the pool
+     */
+    private void commitMaskCopy(long[] maskCopy) {
+        long[] previousMask = mask;
+        mask = maskCopy;
+        ScratchArrays.release(previousMask);
+    }
+
     private void markInRadius(float radius, long[] maskCopy, int x, int y, boolean value) {
         float radius2 = (radius + 0.5f) * (radius + 0.5f);
         int searchRange = (int) StrictMath.ceil(radius);
@@ -997,12 +1132,32 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
     public BooleanMask outline() {
         return enqueue(() -> {
             int size = getSize();
-            long[] maskCopy = new long[minimumArraySize(size)];
-            apply((x, y) -> setBit(x, y, isEdge(x, y), size, maskCopy));
-            mask = maskCopy;
+            long[] maskCopy = ScratchArrays.borrowLongs(mask.length);
+            Arrays.fill(maskCopy, 0);
+            forEachEdge(true, (x, y) -> setBit(x, y, true, size, maskCopy));
+            forEachEdge(false, (x, y) -> setBit(x, y, true, size, maskCopy));
+            commitMaskCopy(maskCopy);
         });
     }
 
+    /**
+     * Calls the action with every pixel equal to {@code value} that has a differing neighbor, in row order. Masks
+     * where the value forms fewer runs than there are words in the bitset are walked run by run, which only touches
+     * the run ends and the rows around them, and all others pixel by pixel
+     */
+    private void forEachEdge(boolean value, BiIntConsumer action) {
+        BitRuns runs = BitRuns.of(mask, getSize(), value, mask.length);
+        if (runs != null) {
+            runs.forEachEdge(action);
+        } else {
+            apply((x, y) -> {
+                if (getPrimitive(x, y) == value && isEdge(x, y)) {
+                    action.accept(x, y);
+                }
+            });
+        }
+    }
+
     public boolean isEdge(int x, int y) {
         boolean value = getPrimitive(x, y);
         int size = getSize();
@@ -1036,7 +1191,7 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
                         applyAtSymmetryPoints(x, y, symmetryType, (sx, sy) -> setBit(sx, sy, true, size, maskCopy));
                     }
                 });
-                mask = maskCopy;
+                commitMaskCopy(maskCopy);
             }
         });
     }
@@ -1059,7 +1214,7 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
                         applyAtSymmetryPoints(x, y, symmetryType, (sx, sy) -> setBit(sx, sy, false, size, maskCopy));
                     }
                 });
-                mask = maskCopy;
+                commitMaskCopy(maskCopy);
             }
         });
     }
@@ -1329,23 +1484,36 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
     }
 
     public List<Vector2> getSpacedCoordinates(float radius, int spacing) {
-        List<Vector2> coordinateList = getAllCoordinates(spacing);
-        return spaceCoordinates(radius, coordinateList);
+        int size = getSize();
+        int coordinatesPerRow = (size + spacing - 1) / spacing;
+        int[] indices = new int[coordinatesPerRow * coordinatesPerRow];
+        int count = 0;
+        for (int x = 0; x < size; x += spacing) {
+            for (int y = 0; y < size; y += spacing) {
+                indices[count++] = bitIndex(x, y, size);
+            }
+        }
+        return spaceCoordinates(radius, indices);
     }
 
-    private List<Vector2> spaceCoordinates(float radius, List<Vector2> coordinateList) {
+    /**
+     * Takes the first remaining candidate and removes the candidates closer than {@code radius} until none are left
+     */
+    private List<Vector2> spaceCoordinates(float radius, int[] indices) {
+        SpacedCandidates candidates = new SpacedCandidates(indices, getSize(), radius);
         List<Vector2> chosenCoordinates = new ArrayList<>();
-        while (coordinateList.size() > 0) {
-            Vector2 location = coordinateList.remove(0);
+        while (candidates.getRemainingCount() > 0) {
+            Vector2 location = getCoordinate(candidates.removeAt(0));
             chosenCoordinates.add(location);
-            coordinateList.removeIf((loc) -> location.getDistance(loc) < radius);
+            candidates.removeWithin(location.getX(), location.getY(), radius);
         }
         return chosenCoordinates;
     }
 
     public List<Vector2> getAllCoordinates(int spacing) {
         int size = getSize();
-        List<Vector2> coordinates = new ArrayList<>(size * size);
+        int coordinatesPerRow = (size + spacing - 1) / spacing;
+        List<Vector2> coordinates = new ArrayList<>(coordinatesPerRow * coordinatesPerRow);
         for (int x = 0; x < size; x += spacing) {
             for (int y = 0; y < size; y += spacing) {
                 Vector2 location = new Vector2(x, y);
@@ -1356,55 +1524,119 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
     }
 
     public List<Vector2> getSpacedCoordinatesEqualTo(boolean value, float radius, int spacing) {
-        List<Vector2> coordinateList = getAllCoordinatesEqualTo(value, spacing);
-        return spaceCoordinates(radius, coordinateList);
+        return spaceCoordinates(radius, getAllIndicesEqualTo(value, spacing));
     }
 
     public List<Vector2> getAllCoordinatesEqualTo(boolean value, int spacing) {
-        assertNotPipelined();
-        int size = getSize();
-        int numPossibleCoordinates;
-        int numTrue = getCount();
-        if (value) {
-            numPossibleCoordinates = numTrue;
-        } else {
-            numPossibleCoordinates = size * size - numTrue;
-        }
-        List<Vector2> coordinates = new ArrayList<>(numPossibleCoordinates / spacing);
-        for (int x = 0; x < size; x += spacing) {
-            for (int y = 0; y < size; y += spacing) {
-                if (getPrimitive(x, y) == value) {
-                    coordinates.add(new Vector2(x, y));
-                }
-            }
+        int[] indices = getAllIndicesEqualTo(value, spacing);
+        List<Vector2> coordinates = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            coordinates.add(getCoordinate(index));
         }
         return coordinates;
     }
 
+    /**
+     * Chooses random true pixels in random order, removing the remaining pixels closer than a random spacing
+     * between {@code minSpacing} and {@code maxSpacing} to each chosen pixel and its symmetry points. Only pixels in
+     * the team symmetry region are chosen when a symmetry type is given
+     */
     public List<Vector2> getRandomCoordinates(float minSpacing, float maxSpacing, SymmetryType symmetryType) {
-        List<Vector2> coordinateList;
         if (symmetryType != null) {
-            coordinateList = copy().limitToSymmetryRegion().getAllCoordinatesEqualTo(true);
-        } else {
-            coordinateList = getAllCoordinatesEqualTo(true);
+            // Draws the seed the copy limited to the symmetry region used to take so the choices stay the same
+            getNextSeed();
         }
         List<Vector2> chosenCoordinates = new ArrayList<>();
         enqueue(() -> {
-            while (coordinateList.size() > 0) {
-                Vector2 location = coordinateList.remove(random.nextInt(coordinateList.size()));
-                float spacing = random.nextFloat() * (maxSpacing - minSpacing) + minSpacing;
-                chosenCoordinates.add(location);
-                coordinateList.removeIf((loc) -> location.getDistance(loc) < spacing);
-                if (symmetryType != null) {
-                    List<Vector2> symmetryPoints = getSymmetryPoints(location, symmetryType);
-                    symmetryPoints.forEach(
-                            symPoint -> coordinateList.removeIf((loc) -> symPoint.getDistance(loc) < spacing));
-                }
-            }
+            int[] indices = symmetryType != null ? getIndicesInTeamRegion() : getAllIndicesEqualTo(true, 1);
+            SpacedCandidates candidates = new SpacedCandidates(indices, getSize(),
+                                                               StrictMath.max(minSpacing, maxSpacing));
+            chooseRandomCoordinates(candidates, minSpacing, maxSpacing, symmetryType, random, chosenCoordinates);
         });
         return chosenCoordinates;
     }
 
+    /**
+     * Returns the true pixels in the team symmetry region as candidates for
+     * {@link #getRandomCoordinates(SpacedCandidates, float, Random)}
+     *
+     * @param maxRadius the largest radius candidates will be removed around
+     */
+    public SpacedCandidates getSpacedCandidates(float maxRadius) {
+        assertNotPipelined();
+        return new SpacedCandidates(getIndicesInTeamRegion(), getSize(), maxRadius);
+    }
+
+    public List<Vector2> getRandomCoordinates(SpacedCandidates candidates, float spacing) {
+        return getRandomCoordinates(candidates, spacing, random);
+    }
+
+    /**
+     * Chooses coordinates from the remaining candidates like {@link #getRandomCoordinates(float)} on a mask seeded
+     * with {@code random} whose true pixels are the candidates, without building that mask. The chosen candidates and
+     * the candidates removed around them are taken out of {@code candidates}
+     */
+    public List<Vector2> getRandomCoordinates(SpacedCandidates candidates, float spacing, Random random) {
+        assertNotPipelined();
+        if (candidates.getSize() != getSize()) {
+            throw new IllegalArgumentException(String.format("Candidates size does not match: %d != %d",
+                                                             candidates.getSize(), getSize()));
+        }
+        // Draws the seed the copy limited to the symmetry region used to take so the choices stay the same
+        random.nextLong();
+        List<Vector2> chosenCoordinates = new ArrayList<>();
+        chooseRandomCoordinates(candidates, spacing, spacing, SymmetryType.TEAM, random, chosenCoordinates);
+        return chosenCoordinates;
+    }
+
+    /**
+     * Sets every pixel that is not a remaining candidate to false
+     */
+    public BooleanMask limitToCandidates(SpacedCandidates candidates) {
+        if (candidates.getSize() != getSize()) {
+            throw new IllegalArgumentException(String.format("Candidates size does not match: %d != %d",
+                                                             candidates.getSize(), getSize()));
+        }
+        return enqueue(() -> {
+            Arrays.fill(mask, 0);
+            candidates.forEachRemaining(index -> setBit(index, true, mask));
+        });
+    }
+
+    private void chooseRandomCoordinates(SpacedCandidates candidates, float minSpacing, float maxSpacing,
+                                         SymmetryType symmetryType, Random random, List<Vector2> chosenCoordinates) {
+        while (candidates.getRemainingCount() > 0) {
+            Vector2 location = getCoordinate(candidates.removeAt(random.nextInt(candidates.getRemainingCount())));
+            float spacing = random.nextFloat() * (maxSpacing - minSpacing) + minSpacing;
+            chosenCoordinates.add(location);
+            candidates.removeWithin(location.getX(), location.getY(), spacing);
+            if (symmetryType != null) {
+                for (Vector2 symmetryPoint : getSymmetryPoints(location, symmetryType)) {
+                    candidates.removeWithin(symmetryPoint.getX(), symmetryPoint.getY(), spacing);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the bit indices of the true pixels that {@link #limitToSymmetryRegion()} would keep, in row order
+     */
+    private int[] getIndicesInTeamRegion() {
+        int size = getSize();
+        int[] indices = new int[getCount()];
+        int[] count = new int[1];
+        int minX = StrictMath.max(0, getMinXBound(SymmetryType.TEAM));
+        int maxX = StrictMath.min(size, getMaxXBound(SymmetryType.TEAM));
+        for (int x = minX; x < maxX; x++) {
+            int minY = StrictMath.max(0, getMinYBound(x, SymmetryType.TEAM));
+            int maxY = StrictMath.min(size, getMaxYBound(x, SymmetryType.TEAM));
+            if (minY < maxY) {
+                forEachIndexEqualTo(true, x * size + minY, x * size + maxY, index -> indices[count[0]++] = index);
+            }
+        }
+        return Arrays.copyOf(indices, count[0]);
+    }
+
     public List<Vector2> getRandomCoordinates(float spacing) {
         return getRandomCoordinates(spacing, SymmetryType.TEAM);
     }
@@ -1420,22 +1652,65 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
     public List<Vector2> getAllCoordinatesEqualTo(boolean value) {
         int size = getSize();
         List<Vector2> coordinates = new ArrayList<>((int) (size * size * .25));
-        apply((x, y) -> {
-            if (getPrimitive(x, y) == value) {
-                coordinates.add(new Vector2(x, y));
-            }
-        });
+        enqueue(() -> forEachIndexEqualTo(value, 0, size * size, index -> coordinates.add(getCoordinate(index))));
         return coordinates;
     }
 
+    /**
+     * Returns a true pixel within the circle chosen uniformly with {@code random}, or null if there is none. The circle
+     * covers the same pixels as {@link #fillCircle(float, float, float, Object)} and only those pixels are read, so the
+     * result matches filling a new mask with the circle, multiplying it with this one and calling
+     * {@link #getRandomPosition()} on it without building that mask
+     */
+    public Vector2 getRandomPositionInCircle(Vector2 center, float radius, Random random) {
+        assertNotPipelined();
+        float x = center.getX();
+        float y = center.getY();
+        float radius2 = (radius + .5f) * (radius + .5f);
+        int minX = StrictMath.round(x - radius);
+        int maxX = StrictMath.round(x + radius + 1);
+        int minY = StrictMath.round(y - radius);
+        int maxY = StrictMath.round(y + radius + 1);
+        int[] candidates = new int[StrictMath.max(0, maxX - minX) * StrictMath.max(0, maxY - minY)];
+        int count = 0;
+        for (int cx = minX; cx < maxX; cx++) {
+            for (int cy = minY; cy < maxY; cy++) {
+                float dx = x - cx;
+                float dy = y - cy;
+                if (inBounds(cx, cy) && dx * dx + dy * dy <= radius2 && getPrimitive(cx, cy)) {
+                    candidates[count++] = bitIndex(cx, cy, getSize());
+                }
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        return getCoordinate(candidates[random.nextInt(count)]);
+    }
+
+    /**
+     * Returns a uniformly chosen true pixel or null if there is none. The pixel is found by counting the true pixels
+     * word by word up to the chosen rank, so no coordinate list is built
+     */
     public Vector2 getRandomPosition() {
         assertNotPipelined();
-        List<Vector2> coordinates = new ArrayList<>(getAllCoordinatesEqualTo(true, 1));
-        if (coordinates.size() == 0) {
+        int count = getCount();
+        if (count == 0) {
             return null;
         }
-        int cell = random.nextInt(coordinates.size());
-        return coordinates.get(cell);
+        int rank = random.nextInt(count);
+        int wordIndex = 0;
+        int wordCount = Long.bitCount(mask[wordIndex]);
+        while (rank >= wordCount) {
+            rank -= wordCount;
+            wordIndex++;
+            wordCount = Long.bitCount(mask[wordIndex]);
+        }
+        long word = mask[wordIndex];
+        for (int i = 0; i < rank; i++) {
+            word &= word - 1;
+        }
+        return getCoordinate(wordIndex * BOOLEANS_PER_LONG + Long.numberOfTrailingZeros(word));
     }
 
     public BooleanMask addPrimitiveWithSymmetry(SymmetryType symmetryType, ToBooleanBiIntFunction valueFunction) {
@@ -1474,49 +1749,23 @@ public class BooleanMask extends PrimitiveMask<Boolean, BooleanMask> {
             int size = getSize();
             int otherSize = other.getSize();
             int smallerSize = StrictMath.min(size, otherSize);
-            int biggerSize = StrictMath.max(size, otherSize);
             if (smallerSize == otherSize) {
                 if (symmetrySettings.getSpawnSymmetry().isPerfectSymmetry()) {
-                    Map<Integer, Integer> coordinateXMap = getShiftedCoordinateMap(xOffset, center, wrapEdges,
-                                                                                   otherSize, size);
-                    Map<Integer, Integer> coordinateYMap = getShiftedCoordinateMap(yOffset, center, wrapEdges,
-                                                                                   otherSize, size);
-                    other.apply((x, y) -> {
-                        int shiftX = coordinateXMap.get(x);
-                        int shiftY = coordinateYMap.get(y);
-                        if (inBounds(shiftX, shiftY)) {
-                            boolean value = other.getPrimitive(x, y);
-                            applyAtSymmetryPoints(shiftX, shiftY, SymmetryType.SPAWN,
-                                                  (sx, sy) -> action.accept(sx, sy, value));
-                        }
+                    loopWithOffset(xOffset, yOffset, center, wrapEdges, otherSize, size, (x, y, shiftX, shiftY) -> {
+                        boolean value = other.getPrimitive(x, y);
+                        applyAtSymmetryPoints(shiftX, shiftY, SymmetryType.SPAWN,
+                                              (sx, sy) -> action.accept(sx, sy, value));
                     });
                 } else {
                     applyAtSymmetryPointsWithOutOfBounds(xOffset, yOffset, SymmetryType.SPAWN, (sx, sy) -> {
-                        Map<Integer, Integer> coordinateXMap = getShiftedCoordinateMap(sx, center, wrapEdges, otherSize,
-                                                                                       size);
-                        Map<Integer, Integer> coordinateYMap = getShiftedCoordinateMap(sy, center, wrapEdges, otherSize,
-                                                                                       size);
-                        other.apply((x, y) -> {
-                            int shiftX = coordinateXMap.get(x);
-                            int shiftY = coordinateYMap.get(y);
-                            if (inBounds(shiftX, shiftY)) {
-                                action.accept(shiftX, shiftY, other.getPrimitive(x, y));
-                            }
+                        loopWithOffset(sx, sy, center, wrapEdges, otherSize, size, (x, y, shiftX, shiftY) -> {
+                            action.accept(shiftX, shiftY, other.getPrimitive(x, y));
                         });
                     });
                 }
             } else {
-                Map<Integer, Integer> coordinateXMap = getShiftedCoordinateMap(xOffset, center, wrapEdges, size,
-                                                                               otherSize);
-                Map<Integer, Integer> coordinateYMap = getShiftedCoordinateMap(yOffset, center, wrapEdges, size,
-                                                                               otherSize);
-                apply((x, y) -> {
-                    int shiftX = coordinateXMap.get(x);
-                    int shiftY = coordinateYMap.get(y);
-                    if (other.inBounds(shiftX, shiftY)) {
-                        action.accept(x, y, other.getPrimitive(shiftX, shiftY));
-                    }
-                });
+                loopWithOffset(xOffset, yOffset, center, wrapEdges, size, otherSize,
+                               (x, y, shiftX, shiftY) -> action.accept(x, y, other.getPrimitive(shiftX, shiftY)));
             }
         });
     }
@@ -0,0 +1,66 @@
+package com.faforever.neroxis.mask;
+
+import com.faforever.neroxis.util.Pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * Pipeline function for operations that only combine the values at the same position. Operations fused into it are
+ * applied one after the other per element block, so the mask storage is traversed once for the whole chain while
+ * every element still sees the operations in the order they were called
+ */
+final class ElementWiseOperation implements Pipeline.FusibleFunction {
+    private final Mask<?, ?> mask;
+    private final List<Function<List<Mask<?, ?>>, IntConsumer>> kernelFactories = new ArrayList<>();
+    private final List<Integer> dependencyOffsets = new ArrayList<>();
+    private final List<Integer> dependencyCounts = new ArrayList<>();
+
+    ElementWiseOperation(Mask<?, ?> mask, Function<List<Mask<?, ?>>, IntConsumer> kernelFactory,
+                         int dependencyCount) {
+        this.mask = mask;
+        kernelFactories.add(kernelFactory);
+        dependencyOffsets.add(0);
+        dependencyCounts.add(dependencyCount);
+    }
+
+    @Override
+    public boolean fuse(Pipeline.FusibleFunction next, int dependencyOffset) {
+        if (!(next instanceof ElementWiseOperation nextOperation) || nextOperation.mask != mask) {
+            return false;
+        }
+        kernelFactories.addAll(nextOperation.kernelFactories);
+        dependencyOffsets.add(dependencyOffset);
+        dependencyCounts.addAll(nextOperation.dependencyCounts);
+        return true;
+    }
+
+    @Override
+    public void accept(List<Mask<?, ?>> dependencies) {
+        // Entries without dependencies are called with null
+        List<Mask<?, ?>> usedMasks = dependencies == null ? List.of() : dependencies;
+        int operationCount = kernelFactories.size();
+        IntConsumer[] kernels = new IntConsumer[operationCount];
+        for (int i = 0; i < operationCount; ++i) {
+            int offset = dependencyOffsets.get(i);
+            kernels[i] = kernelFactories.get(i)
+                                        .apply(usedMasks.subList(offset, offset + dependencyCounts.get(i)));
+        }
+
+        int blockCount = mask.getElementBlockCount();
+        if (operationCount == 1) {
+            IntConsumer kernel = kernels[0];
+            for (int block = 0; block < blockCount; ++block) {
+                kernel.accept(block);
+            }
+        } else {
+            for (int block = 0; block < blockCount; ++block) {
+                for (IntConsumer kernel : kernels) {
+                    kernel.accept(block);
+                }
+            }
+        }
+    }
+}
@@ -6,8 +6,13 @@ import com.faforever.neroxis.map.Symmetry;
 import com.faforever.neroxis.map.SymmetrySettings;
 import com.faforever.neroxis.map.SymmetryType;
 import com.faforever.neroxis.util.MathUtil;
+import com.faforever.neroxis.util.ScratchArrays;
+import com.faforever.neroxis.util.XxHash64;
 import com.faforever.neroxis.util.functional.BiIntFloatConsumer;
 import com.faforever.neroxis.util.functional.ToFloatBiIntFunction;
+import com.faforever.neroxis.util.noise.FractalNoise;
+import com.faforever.neroxis.util.noise.GradientNoise;
+import com.faforever.neroxis.util.noise.SimplexNoise;
 import com.faforever.neroxis.util.vector.Vector;
 import com.faforever.neroxis.util.vector.Vector2;
 import com.faforever.neroxis.util.vector.Vector3;
@@ -15,13 +20,10 @@ import com.faforever.neroxis.util.vector.Vector3;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
 import java.nio.ByteBuffer;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.ArrayList;
+import java.nio.FloatBuffer;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.IntStream;
 
 import static com.faforever.neroxis.brushes.Brushes.loadBrush;
@@ -162,32 +164,125 @@ public class FloatMask extends PrimitiveMask<Float, FloatMask> {
                                                       new SymmetrySettings(Symmetry.NONE), getName() + "PerlinVectors",
                                                       isParallel());
         gradientVectors.randomize(-1f, 1f).normalize();
-        FloatMask noise = new FloatMask(size, null, symmetrySettings, getName() + "PerlinNoise", isParallel());
-        noise.enqueue(dependencies -> {
+        return enqueue(dependencies -> {
             Vector2Mask source = (Vector2Mask) dependencies.get(0);
-            noise.apply((x, y) -> {
+            int gradientMaskSize = source.getSize();
+            float[][] gradientsX = new float[gradientMaskSize][gradientMaskSize];
+            float[][] gradientsY = new float[gradientMaskSize][gradientMaskSize];
+            source.loop((x, y) -> {
+                Vector2 gradient = source.get(x, y);
+                gradientsX[x][y] = gradient.getX();
+                gradientsY[x][y] = gradient.getY();
+            });
+            float[][] noise = new float[size][size];
+            float[] rowMins = new float[size];
+            float[] rowMaxs = new float[size];
+            IntStream.range(0, size).parallel().forEach(x -> {
+                float[] noiseRow = noise[x];
                 int xLow = (int) (x / gradientScale);
                 float dXLow = x / gradientScale - xLow;
                 int xHigh = xLow + 1;
                 float dXHigh = x / gradientScale - xHigh;
-                int yLow = (int) (y / gradientScale);
-                float dYLow = y / gradientScale - yLow;
-                int yHigh = yLow + 1;
-                float dYHigh = y / gradientScale - yHigh;
-                float topLeft = new Vector2(dXLow, dYLow).dot(source.get(xLow, yLow));
-                float topRight = new Vector2(dXLow, dYHigh).dot(source.get(xLow, yHigh));
-                float bottomLeft = new Vector2(dXHigh, dYLow).dot(source.get(xHigh, yLow));
-                float bottomRight = new Vector2(dXHigh, dYHigh).dot(source.get(xHigh, yHigh));
-                noise.setPrimitive(x, y, MathUtil.smootherStep(MathUtil.smootherStep(topLeft, bottomLeft, dXLow),
-                                                               MathUtil.smootherStep(topRight, bottomRight, dXLow),
-                                                               dYLow));
+                float rowMin = Float.POSITIVE_INFINITY;
+                float rowMax = Float.NEGATIVE_INFINITY;
+                for (int y = 0; y < size; ++y) {
+                    int yLow = (int) (y / gradientScale);
+                    float dYLow = y / gradientScale - yLow;
+                    int yHigh = yLow + 1;
+                    float dYHigh = y / gradientScale - yHigh;
+                    float topLeft = dXLow * gradientsX[xLow][yLow] + dYLow * gradientsY[xLow][yLow];
+                    float topRight = dXLow * gradientsX[xLow][yHigh] + dYHigh * gradientsY[xLow][yHigh];
+                    float bottomLeft = dXHigh * gradientsX[xHigh][yLow] + dYLow * gradientsY[xHigh][yLow];
+                    float bottomRight = dXHigh * gradientsX[xHigh][yHigh] + dYHigh * gradientsY[xHigh][yHigh];
+                    float value = MathUtil.smootherStep(MathUtil.smootherStep(topLeft, bottomLeft, dXLow),
+                                                        MathUtil.smootherStep(topRight, bottomRight, dXLow), dYLow);
+                    noiseRow[y] = value;
+                    rowMin = StrictMath.min(rowMin, value);
+                    rowMax = StrictMath.max(rowMax, value);
+                }
+                rowMins[x] = rowMin;
+                rowMaxs[x] = rowMax;
             });
-            float noiseMin = noise.getMin();
-            float noiseMax = noise.getMax();
+            float noiseMin = Float.POSITIVE_INFINITY;
+            float noiseMax = Float.NEGATIVE_INFINITY;
+            for (int x = 0; x < size; ++x) {
+                noiseMin = StrictMath.min(noiseMin, rowMins[x]);
+                noiseMax = StrictMath.max(noiseMax, rowMaxs[x]);
+            }
             float noiseRange = noiseMax - noiseMin;
-            noise.apply((x, y) -> noise.setPrimitive(x, y, (noise.getPrimitive(x, y) - noiseMin) / noiseRange * scale));
+            float finalNoiseMin = noiseMin;
+            IntStream.range(0, size).parallel().forEach(x -> {
+                float[] row = mask[x];
+                float[] noiseRow = noise[x];
+                for (int y = 0; y < size; ++y) {
+                    float value = (noiseRow[y] - finalNoiseMin) / noiseRange * scale;
+                    row[y] += value;
+                }
+            });
         }, gradientVectors);
-        return enqueue(dependencies -> add((FloatMask) dependencies.get(0)), noise);
+    }
+
+    /**
+     * Add simplex noise to the mask with the given resolution and noise scale.
+     * The noise is mapped to the range [0, scale]
+     *
+     * @param resolution size in pixels of one noise cell
+     * @param scale      Multiplicative factor to scale the noise by
+     */
+    @GraphMethod
+    public FloatMask addSimplexNoise(int resolution, float scale) {
+        GradientNoise noise = new SimplexNoise(random.nextLong());
+        float frequency = 1f / resolution;
+        return addNoise((x, y) -> noise.getValue(x * frequency, y * frequency), scale);
+    }
+
+    /**
+     * Add fractal brownian motion noise built from simplex noise to the mask.
+     * The noise is mapped to the range [0, scale]
+     *
+     * @param resolution size in pixels of one noise cell for the first octave
+     * @param scale      Multiplicative factor to scale the noise by
+     * @param octaves    number of octaves of noise to sum
+     * @param lacunarity frequency multiplier between octaves
+     * @param gain       amplitude multiplier between octaves
+     */
+    @GraphMethod
+    public FloatMask addFractalNoise(int resolution, float scale, int octaves, float lacunarity, float gain) {
+        FractalNoise noise = new FractalNoise(new SimplexNoise(random.nextLong()), octaves, lacunarity, gain);
+        float frequency = 1f / resolution;
+        return addNoise((x, y) -> noise.getValue(x * frequency, y * frequency), scale);
+    }
+
+    /**
+     * Add domain warped fractal brownian motion noise built from simplex noise to the mask.
+     * The noise is mapped to the range [0, scale]
+     *
+     * @param resolution   size in pixels of one noise cell for the first octave
+     * @param scale        Multiplicative factor to scale the noise by
+     * @param octaves      number of octaves of noise to sum
+     * @param lacunarity   frequency multiplier between octaves
+     * @param gain         amplitude multiplier between octaves
+     * @param warpStrength how far in noise cells each pixel can be displaced before sampling
+     */
+    @GraphMethod
+    public FloatMask addWarpedFractalNoise(int resolution, float scale, int octaves, float lacunarity, float gain,
+                                           float warpStrength) {
+        FractalNoise noise = new FractalNoise(new SimplexNoise(random.nextLong()), octaves, lacunarity, gain);
+        float frequency = 1f / resolution;
+        return addNoise((x, y) -> noise.getWarpedValue(x * frequency, y * frequency, warpStrength), scale);
+    }
+
+    private FloatMask addNoise(ToFloatBiIntFunction noiseFunction, float scale) {
+        float halfScale = scale / 2f;
+        return enqueue(() -> {
+            int size = getSize();
+            IntStream.range(0, size).parallel().forEach(x -> {
+                float[] row = mask[x];
+                for (int y = 0; y < size; ++y) {
+                    row[y] += (noiseFunction.apply(x, y) + 1f) * halfScale;
+                }
+            });
+        });
     }
 
     @Override
@@ -376,7 +471,7 @@ public class FloatMask extends PrimitiveMask<Float, FloatMask> {
     public FloatMask gradient() {
         return enqueue(() -> {
             int size = getSize();
-            float[][] newMask = new float[size][size];
+            float[][] newMask = ScratchArrays.borrowFloatGrid(size);
             apply((x, y) -> {
                 int xNeg = StrictMath.max(0, x - 1);
                 int xPos = StrictMath.min(size - 1, x + 1);
@@ -386,7 +481,7 @@ public class FloatMask extends PrimitiveMask<Float, FloatMask> {
                 float ySlope = (getPrimitive(x, yPos) - getPrimitive(x, yNeg)) / (yPos - yNeg);
                 newMask[x][y] = (float) StrictMath.sqrt(xSlope * xSlope + ySlope * ySlope);
             });
-            mask = newMask;
+            commitMaskCopy(newMask);
         });
     }
 
@@ -397,7 +492,7 @@ public class FloatMask extends PrimitiveMask<Float, FloatMask> {
     public FloatMask supcomGradient() {
         return enqueue(() -> {
             int size = getSize();
-            float[][] newMask = new float[size][size];
+            float[][] newMask = ScratchArrays.borrowFloatGrid(size);
             apply((x, y) -> {
                 int xPos = StrictMath.min(size - 1, x + 1);
                 int yPos = StrictMath.min(size - 1, y + 1);
@@ -409,10 +504,19 @@ public class FloatMask extends PrimitiveMask<Float, FloatMask> {
                 float yNegSlope = StrictMath.abs(getPrimitive(x, y) - getPrimitive(x, yNeg));
                 newMask[x][y] = Collections.max(List.of(xPosSlope, yPosSlope, xNegSlope, yNegSlope));
             });
-            mask = newMask;
+            commitMaskCopy(newMask);
         });
     }
 
+    /**
+     * Makes the scratch grid the mask and returns the previous grid to the pool
+     */
+    private void commitMaskCopy(float[][] maskCopy) {
+        float[][] previousMask = mask;
+        mask = maskCopy;
+        ScratchArrays.release(previousMask);
+    }
+
     @GraphMethod
     public FloatMask useBrushWithinAreaWithDensity(BooleanMask other, String brushName, int size, float density,
                                                    float intensity, boolean wrapEdges) {
@@ -431,40 +535,81 @@ public class FloatMask extends PrimitiveMask<Float, FloatMask> {
         return enqueue(dependencies -> {
             BooleanMask source = (BooleanMask) dependencies.get(0);
             assertSmallerSize(size);
-            ArrayList<Vector2> possibleLocations = new ArrayList<>(source.getAllCoordinatesEqualTo(true, 1));
-            int length = possibleLocations.size();
+            int[] possibleIndices = source.getAllIndicesEqualTo(true, 1);
+            int sourceSize = source.getSize();
             FloatMask brush = loadBrush(brushName, null);
             brush.multiply(intensity / brush.getMax()).setSize(size);
             for (int i = 0; i < numUses; i++) {
-                Vector2 location = possibleLocations.get(random.nextInt(length));
-                addWithOffset(brush, location, true, wrapEdges);
+                int index = possibleIndices[random.nextInt(possibleIndices.length)];
+                addWithOffset(brush, new Vector2(index / sourceSize, index % sourceSize), true, wrapEdges);
             }
         }, other);
     }
 
+    /**
+     * Return a boolean mask which is true wherever the terrain is occluded from the light
+     * (Note the returned mask will have a {@link Symmetry#NONE} symmetry
+     *
+     * @param lightDirection direction of the light source
+     * @return a new shadow mask
+     */
     public BooleanMask copyAsShadowMask(Vector3 lightDirection) {
         float angle = (float) ((lightDirection.getAzimuth() - StrictMath.PI) % (StrictMath.PI * 2));
         float slope = (float) StrictMath.tan(lightDirection.getElevation());
         BooleanMask shadowMask = new BooleanMask(getSize(), getNextSeed(), new SymmetrySettings(Symmetry.NONE),
                                                  getName() + "Shadow", isParallel());
-        return shadowMask.enqueue(dependencies -> shadowMask.apply((x, y) -> {
-            Vector2 location = new Vector2(x, y);
-            if (shadowMask.getPrimitive(location)) {
-                return;
-            }
-            float startHeight = getPrimitive(location);
-            int dist = 1;
-            location.addPolar(angle, 1);
-            while (inBounds(location)) {
-                if (startHeight - getPrimitive(location) > dist * slope) {
-                    shadowMask.setPrimitive(location, true);
+        return shadowMask.enqueue(dependencies -> {
+            FloatMask source = (FloatMask) dependencies.get(0);
+            boolean[][] shadowed = source.getHorizonShadows(angle, slope);
+            shadowMask.apply((x, y) -> shadowMask.setPrimitive(x, y, shadowed[x][y]));
+        }, this).inflate(1).deflate(1);
+    }
+
+    /**
+     * Sweeps scanlines aligned with the light direction and keeps track of the highest horizon seen so far.
+     * A pixel is in shadow when the horizon line dropping by {@code slope} per unit distance is above it.
+     * Every pixel belongs to exactly one scanline so the scanlines are processed in parallel
+     */
+    private boolean[][] getHorizonShadows(float angle, float slope) {
+        assertNotPipelined();
+        int size = getSize();
+        float dx = (float) StrictMath.cos(angle);
+        float dy = (float) StrictMath.sin(angle);
+        boolean xMajor = StrictMath.abs(dx) >= StrictMath.abs(dy);
+        float majorDirection = xMajor ? dx : dy;
+        float minorDirection = xMajor ? dy : dx;
+        int majorStep = majorDirection >= 0 ? 1 : -1;
+        int majorStart = majorStep > 0 ? 0 : size - 1;
+        float minorStep = minorDirection / StrictMath.abs(majorDirection);
+        float dropPerStep = slope / StrictMath.abs(majorDirection);
+        int minorSpan = (int) StrictMath.ceil(StrictMath.abs(minorStep) * (size - 1));
+        int firstLine = minorStep > 0 ? -minorSpan : 0;
+        int lastLine = minorStep > 0 ? size : size + minorSpan;
+        boolean[][] shadowed = new boolean[size][size];
+        IntStream.range(firstLine, lastLine).parallel().forEach(line -> {
+            float horizonHeight = 0;
+            int horizonStep = -1;
+            for (int i = 0; i < size; ++i) {
+                int minorCoordinate = StrictMath.round(line + i * minorStep);
+                if (minorCoordinate < 0 || minorCoordinate >= size) {
+                    if (horizonStep >= 0) {
+                        break;
+                    }
+                    continue;
+                }
+                int majorCoordinate = majorStart + i * majorStep;
+                int x = xMajor ? majorCoordinate : minorCoordinate;
+                int y = xMajor ? minorCoordinate : majorCoordinate;
+                float height = mask[x][y];
+                if (horizonStep >= 0 && horizonHeight - height > (i - horizonStep) * dropPerStep) {
+                    shadowed[x][y] = true;
                 } else {
-                    break;
+                    horizonHeight = height;
+                    horizonStep = i;
                 }
-                location.addPolar(angle, 1);
-                ++dist;
             }
-        }), this).inflate(1).deflate(1);
+        });
+        return shadowed;
     }
 
     public float getPrimitive(Vector2 location) {
@@ -518,69 +663,40 @@ public class FloatMask extends PrimitiveMask<Float, FloatMask> {
     private void addCalculatedParabolicDistance(boolean useColumns) {
         assertNotPipelined();
         int size = getSize();
+        float[] values = ScratchArrays.borrowFloats(size);
+        float[] vertexXs = ScratchArrays.borrowFloats(size);
+        float[] vertexYs = ScratchArrays.borrowFloats(size);
+        float[] intersections = ScratchArrays.borrowFloats(size + 1);
         for (int i = 0; i < size; i++) {
-            List<Vector2> vertices = new ArrayList<>();
-            List<Vector2> intersections = new ArrayList<>();
-            int index = 0;
-            float value;
-            if (!useColumns) {
-                value = getPrimitive(i, 0);
-            } else {
-                value = getPrimitive(0, i);
+            for (int j = 0; j < size; j++) {
+                values[j] = !useColumns ? getPrimitive(i, j) : getPrimitive(j, i);
             }
-            vertices.add(new Vector2(0, value));
-            intersections.add(new Vector2(Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY));
-            intersections.add(new Vector2(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY));
+            int index = 0;
+            vertexXs[0] = 0;
+            vertexYs[0] = values[0];
+            intersections[0] = Float.NEGATIVE_INFINITY;
+            intersections[1] = Float.POSITIVE_INFINITY;
             for (int j = 1; j < size; j++) {
-                if (!useColumns) {
-                    value = getPrimitive(i, j);
-                } else {
-                    value = getPrimitive(j, i);
-                }
-                Vector2 current = new Vector2(j, value);
-                Vector2 vertex = vertices.get(index);
-                float xIntersect = ((current.getY() + current.getX() * current.getX()) - (vertex.getY()
-                                                                                          + vertex.getX()
-                                                                                            * vertex.getX())) / (2
-                                                                                                                 *
-                                                                                                                 current.getX()
-                                                                                                                 - 2
-                                                                                                                   *
-                                                                                                                   vertex.getX());
-                while (xIntersect <= intersections.get(index).getX()) {
+                float currentX = j;
+                float currentY = values[j];
+                float xIntersect = getParabolaIntersection(currentX, currentY, vertexXs[index], vertexYs[index]);
+                while (xIntersect <= intersections[index]) {
                     index -= 1;
-                    vertex = vertices.get(index);
-                    xIntersect = ((current.getY() + current.getX() * current.getX()) - (vertex.getY()
-                                                                                        + vertex.getX()
-                                                                                          * vertex.getX())) / (2
-                                                                                                               *
-                                                                                                               current.getX()
-                                                                                                               - 2
-                                                                                                                 *
-                                                                                                                 vertex.getX());
+                    xIntersect = getParabolaIntersection(currentX, currentY, vertexXs[index], vertexYs[index]);
                 }
                 index += 1;
-                if (index < vertices.size()) {
-                    vertices.set(index, current);
-                } else {
-                    vertices.add(current);
-                }
-                if (index < intersections.size() - 1) {
-                    intersections.set(index, new Vector2(xIntersect, Float.POSITIVE_INFINITY));
-                    intersections.set(index + 1, new Vector2(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY));
-                } else {
-                    intersections.set(index, new Vector2(xIntersect, Float.POSITIVE_INFINITY));
-                    intersections.add(new Vector2(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY));
-                }
+                vertexXs[index] = currentX;
+                vertexYs[index] = currentY;
+                intersections[index] = xIntersect;
+                intersections[index + 1] = Float.POSITIVE_INFINITY;
             }
             index = 0;
             for (int j = 0; j < size; j++) {
-                while (intersections.get(index + 1).getX() < j) {
+                while (intersections[index + 1] < j) {
                     index += 1;
                 }
-                Vector2 vertex = vertices.get(index);
-                float dx = j - vertex.getX();
-                float height = dx * dx + vertex.getY();
+                float dx = j - vertexXs[index];
+                float height = dx * dx + vertexYs[index];
                 if (!useColumns) {
                     setPrimitive(i, j, height);
                 } else {
@@ -588,6 +704,14 @@ public class FloatMask extends PrimitiveMask<Float, FloatMask> {
                 }
             }
         }
+        ScratchArrays.release(values);
+        ScratchArrays.release(vertexXs);
+        ScratchArrays.release(vertexYs);
+        ScratchArrays.release(intersections);
+    }
+
+    private static float getParabolaIntersection(float currentX, float currentY, float vertexX, float vertexY) {
+        return ((currentY + currentX * currentX) - (vertexY + vertexX * vertexX)) / (2 * currentX - 2 * vertexX);
     }
 
     /**
@@ -601,9 +725,12 @@ public class FloatMask extends PrimitiveMask<Float, FloatMask> {
     @Override
     @GraphMethod
     public FloatMask blur(int radius) {
-        int[][] innerCount = getInnerCount();
-        return apply(
-                (x, y) -> setPrimitive(x, y, transformAverage(calculateAreaAverageAsInts(radius, x, y, innerCount))));
+        return enqueue(() -> {
+            int[][] innerCount = getInnerCount();
+            apply((x, y) -> setPrimitive(x, y,
+                                         transformAverage(calculateAreaAverageAsInts(radius, x, y, innerCount))));
+            ScratchArrays.release(innerCount);
+        });
     }
 
     @Override
@@ -618,6 +745,7 @@ public class FloatMask extends PrimitiveMask<Float, FloatMask> {
                     setPrimitive(x, y, transformAverage(calculateAreaAverageAsInts(radius, x, y, innerCount)));
                 }
             });
+            ScratchArrays.release(innerCount);
         }, other);
     }
 
@@ -631,6 +759,30 @@ public class FloatMask extends PrimitiveMask<Float, FloatMask> {
         enqueue(() -> mask = new float[size][size]);
     }
 
+    @Override
+    public long getSpillBytes() {
+        int size = getImmediateSize();
+        return (long) size * size * Float.BYTES;
+    }
+
+    @Override
+    protected void writeSpill(ByteBuffer buffer) {
+        FloatBuffer spillBuffer = buffer.asFloatBuffer();
+        for (float[] row : mask) {
+            spillBuffer.put(row);
+        }
+        mask = null;
+    }
+
+    @Override
+    protected void readSpill(ByteBuffer buffer, int size) {
+        FloatBuffer spillBuffer = buffer.asFloatBuffer();
+        mask = new float[size][size];
+        for (float[] row : mask) {
+            spillBuffer.get(row);
+        }
+    }
+
     @Override
     protected int getImmediateSize() {
         return mask.length;
@@ -653,16 +805,10 @@ public class FloatMask extends PrimitiveMask<Float, FloatMask> {
     }
 
     @Override
-    public String toHash() throws NoSuchAlgorithmException {
-        int size = getSize();
-        ByteBuffer bytes = ByteBuffer.allocate(size * size * 4);
-        loopWithSymmetry(SymmetryType.SPAWN, (x, y) -> bytes.putFloat(getPrimitive(x, y)));
-        byte[] data = MessageDigest.getInstance("MD5").digest(bytes.array());
-        StringBuilder stringBuilder = new StringBuilder();
-        for (byte datum : data) {
-            stringBuilder.append(String.format("%02x", datum));
+    protected void addToHash(XxHash64 hash) {
+        for (float[] row : mask) {
+            hash.update(row);
         }
-        return stringBuilder.toString();
     }
 
     @Override
@@ -705,15 +851,50 @@ public class FloatMask extends PrimitiveMask<Float, FloatMask> {
             } else if (oldSize != newSize) {
                 float[][] oldMask = mask;
                 initializeMask(newSize);
-                Map<Integer, Integer> coordinateMap = getSymmetricScalingCoordinateMap(oldSize, newSize);
+                int[] coordinateMap = getSymmetricScalingCoordinateMap(oldSize, newSize);
                 applyWithSymmetry(SymmetryType.SPAWN, (x, y) -> {
-                    float value = oldMask[coordinateMap.get(x)][coordinateMap.get(y)];
+                    float value = oldMask[coordinateMap[x]][coordinateMap[y]];
                     applyAtSymmetryPoints(x, y, SymmetryType.SPAWN, (sx, sy) -> setPrimitive(sx, sy, value));
                 });
             }
         });
     }
 
+    /**
+     * Scales the mask to the given size.
+     * Shrinks by averaging the covered pixels and grows with bicubic interpolation
+     *
+     * @param newSize size to scale the mask to
+     * @return the scaled mask
+     */
+    @Override
+    @GraphMethod
+    public FloatMask resample(int newSize) {
+        return resample(newSize, newSize < getSize() ? ResampleFilter.AREA : ResampleFilter.BICUBIC);
+    }
+
+    /**
+     * Scales the mask to the given size by filtering the content with the given filter.
+     * The result is made symmetric with respect to the spawn symmetry
+     *
+     * @param newSize size to scale the mask to
+     * @param filter  filter used to reconstruct the scaled content
+     * @return the scaled mask
+     */
+    public FloatMask resample(int newSize, ResampleFilter filter) {
+        int size = getSize();
+        if (newSize == size) {
+            return this;
+        }
+        return enqueueResize(newSize, () -> {
+            mask = Resampler.resample(mask, newSize, filter);
+            applyWithSymmetry(SymmetryType.SPAWN, (x, y) -> {
+                float value = getPrimitive(x, y);
+                applyAtSymmetryPoints(x, y, SymmetryType.SPAWN, (sx, sy) -> setPrimitive(sx, sy, value));
+            });
+        });
+    }
+
     protected FloatMask fill(float[][] maskToFillFrom) {
         int maskSize = maskToFillFrom.length;
         mask = new float[maskSize][maskSize];
@@ -730,7 +911,7 @@ public class FloatMask extends PrimitiveMask<Float, FloatMask> {
     @Override
     protected int[][] getInnerCount() {
         int size = getSize();
-        int[][] innerCount = new int[size][size];
+        int[][] innerCount = ScratchArrays.borrowIntGrid(size);
         apply((x, y) -> calculateInnerValue(innerCount, x, y, StrictMath.round(getPrimitive(x, y) * 1000)));
         return innerCount;
     }
@@ -767,6 +948,41 @@ public class FloatMask extends PrimitiveMask<Float, FloatMask> {
         mask[x][y] /= value;
     }
 
+    @Override
+    @GraphMethod
+    public FloatMask clampMin(Float val) {
+        float value = val;
+        return enqueueElementWise(dependencies -> {
+            float[][] target = mask;
+            return x -> {
+                float[] targetRow = target[x];
+                for (int y = 0; y < targetRow.length; y++) {
+                    targetRow[y] = Float.compare(targetRow[y], value) > 0 ? targetRow[y] : value;
+                }
+            };
+        });
+    }
+
+    @Override
+    @GraphMethod
+    public FloatMask clampMax(Float val) {
+        float value = val;
+        return enqueueElementWise(dependencies -> {
+            float[][] target = mask;
+            return x -> {
+                float[] targetRow = target[x];
+                for (int y = 0; y < targetRow.length; y++) {
+                    targetRow[y] = Float.compare(targetRow[y], value) < 0 ? targetRow[y] : value;
+                }
+            };
+        });
+    }
+
+    @Override
+    protected int getElementBlockCount() {
+        return mask.length;
+    }
+
     @Override
     public Float getSum() {
         return (float) Arrays.stream(mask)
@@ -778,12 +994,34 @@ public class FloatMask extends PrimitiveMask<Float, FloatMask> {
     @GraphMethod
     public FloatMask add(FloatMask other) {
         assertCompatibleMask(other);
-        return enqueue(dependencies -> {
-            FloatMask source = (FloatMask) dependencies.get(0);
-            apply((x, y) -> mask[x][y] += source.mask[x][y]);
+        return enqueueElementWise(dependencies -> {
+            float[][] target = mask;
+            float[][] source = ((FloatMask) dependencies.get(0)).mask;
+            return x -> {
+                float[] targetRow = target[x];
+                float[] sourceRow = source[x];
+                for (int y = 0; y < targetRow.length; y++) {
+                    targetRow[y] += sourceRow[y];
+                }
+            };
         }, other);
     }
 
+    @Override
+    @GraphMethod
+    public FloatMask add(Float val) {
+        float value = val;
+        return enqueueElementWise(dependencies -> {
+            float[][] target = mask;
+            return x -> {
+                float[] targetRow = target[x];
+                for (int y = 0; y < targetRow.length; y++) {
+                    targetRow[y] += value;
+                }
+            };
+        });
+    }
+
     @Override
     protected void addValueAt(int x, int y, Float value) {
         mask[x][y] += value;
@@ -843,12 +1081,34 @@ public class FloatMask extends PrimitiveMask<Float, FloatMask> {
     @GraphMethod
     public FloatMask subtract(FloatMask other) {
         assertCompatibleMask(other);
-        return enqueue(dependencies -> {
-            FloatMask source = (FloatMask) dependencies.get(0);
-            apply((x, y) -> mask[x][y] -= source.mask[x][y]);
+        return enqueueElementWise(dependencies -> {
+            float[][] target = mask;
+            float[][] source = ((FloatMask) dependencies.get(0)).mask;
+            return x -> {
+                float[] targetRow = target[x];
+                float[] sourceRow = source[x];
+                for (int y = 0; y < targetRow.length; y++) {
+                    targetRow[y] -= sourceRow[y];
+                }
+            };
         }, other);
     }
 
+    @Override
+    @GraphMethod
+    public FloatMask subtract(Float val) {
+        float value = val;
+        return enqueueElementWise(dependencies -> {
+            float[][] target = mask;
+            return x -> {
+                float[] targetRow = target[x];
+                for (int y = 0; y < targetRow.length; y++) {
+                    targetRow[y] -= value;
+                }
+            };
+        });
+    }
+
     @Override
     @GraphMethod
     public FloatMask subtract(BooleanMask other, Float value) {
@@ -892,12 +1152,34 @@ public class FloatMask extends PrimitiveMask<Float, FloatMask> {
     @GraphMethod
     public FloatMask multiply(FloatMask other) {
         assertCompatibleMask(other);
-        return enqueue(dependencies -> {
-            FloatMask source = (FloatMask) dependencies.get(0);
-            apply((x, y) -> mask[x][y] *= source.mask[x][y]);
+        return enqueueElementWise(dependencies -> {
+            float[][] target = mask;
+            float[][] source = ((FloatMask) dependencies.get(0)).mask;
+            return x -> {
+                float[] targetRow = target[x];
+                float[] sourceRow = source[x];
+                for (int y = 0; y < targetRow.length; y++) {
+                    targetRow[y] *= sourceRow[y];
+                }
+            };
         }, other);
     }
 
+    @Override
+    @GraphMethod
+    public FloatMask multiply(Float val) {
+        float value = val;
+        return enqueueElementWise(dependencies -> {
+            float[][] target = mask;
+            return x -> {
+                float[] targetRow = target[x];
+                for (int y = 0; y < targetRow.length; y++) {
+                    targetRow[y] *= value;
+                }
+            };
+        });
+    }
+
     @Override
     protected void multiplyValueAt(int x, int y, Float value) {
         mask[x][y] *= value;
@@ -946,12 +1228,34 @@ public class FloatMask extends PrimitiveMask<Float, FloatMask> {
     @GraphMethod
     public FloatMask divide(FloatMask other) {
         assertCompatibleMask(other);
-        return enqueue(dependencies -> {
-            FloatMask source = (FloatMask) dependencies.get(0);
-            apply((x, y) -> mask[x][y] /= source.mask[x][y]);
+        return enqueueElementWise(dependencies -> {
+            float[][] target = mask;
+            float[][] source = ((FloatMask) dependencies.get(0)).mask;
+            return x -> {
+                float[] targetRow = target[x];
+                float[] sourceRow = source[x];
+                for (int y = 0; y < targetRow.length; y++) {
+                    targetRow[y] /= sourceRow[y];
+                }
+            };
         }, other);
     }
 
+    @Override
+    @GraphMethod
+    public FloatMask divide(Float val) {
+        float value = val;
+        return enqueueElementWise(dependencies -> {
+            float[][] target = mask;
+            return x -> {
+                float[] targetRow = target[x];
+                for (int y = 0; y < targetRow.length; y++) {
+                    targetRow[y] /= value;
+                }
+            };
+        });
+    }
+
     @Override
     protected void divideValueAt(int x, int y, Float value) {
         mask[x][y] /= value;
@@ -1029,49 +1333,23 @@ public class FloatMask extends PrimitiveMask<Float, FloatMask> {
             int size = getSize();
             int otherSize = other.getSize();
             int smallerSize = StrictMath.min(size, otherSize);
-            int biggerSize = StrictMath.max(size, otherSize);
             if (smallerSize == otherSize) {
                 if (symmetrySettings.getSpawnSymmetry().isPerfectSymmetry()) {
-                    Map<Integer, Integer> coordinateXMap = getShiftedCoordinateMap(xOffset, center, wrapEdges,
-                                                                                   otherSize, size);
-                    Map<Integer, Integer> coordinateYMap = getShiftedCoordinateMap(yOffset, center, wrapEdges,
-                                                                                   otherSize, size);
-                    other.apply((x, y) -> {
-                        int shiftX = coordinateXMap.get(x);
-                        int shiftY = coordinateYMap.get(y);
-                        if (inBounds(shiftX, shiftY)) {
-                            float value = other.getPrimitive(x, y);
-                            applyAtSymmetryPoints(shiftX, shiftY, SymmetryType.SPAWN,
-                                                  (sx, sy) -> action.accept(sx, sy, value));
-                        }
+                    loopWithOffset(xOffset, yOffset, center, wrapEdges, otherSize, size, (x, y, shiftX, shiftY) -> {
+                        float value = other.getPrimitive(x, y);
+                        applyAtSymmetryPoints(shiftX, shiftY, SymmetryType.SPAWN,
+                                              (sx, sy) -> action.accept(sx, sy, value));
                     });
                 } else {
                     applyAtSymmetryPointsWithOutOfBounds(xOffset, yOffset, SymmetryType.SPAWN, (sx, sy) -> {
-                        Map<Integer, Integer> coordinateXMap = getShiftedCoordinateMap(sx, center, wrapEdges, otherSize,
-                                                                                       size);
-                        Map<Integer, Integer> coordinateYMap = getShiftedCoordinateMap(sy, center, wrapEdges, otherSize,
-                                                                                       size);
-                        other.apply((x, y) -> {
-                            int shiftX = coordinateXMap.get(x);
-                            int shiftY = coordinateYMap.get(y);
-                            if (inBounds(shiftX, shiftY)) {
-                                action.accept(shiftX, shiftY, other.getPrimitive(x, y));
-                            }
+                        loopWithOffset(sx, sy, center, wrapEdges, otherSize, size, (x, y, shiftX, shiftY) -> {
+                            action.accept(shiftX, shiftY, other.getPrimitive(x, y));
                         });
                     });
                 }
             } else {
-                Map<Integer, Integer> coordinateXMap = getShiftedCoordinateMap(xOffset, center, wrapEdges, size,
-                                                                               otherSize);
-                Map<Integer, Integer> coordinateYMap = getShiftedCoordinateMap(yOffset, center, wrapEdges, size,
-                                                                               otherSize);
-                apply((x, y) -> {
-                    int shiftX = coordinateXMap.get(x);
-                    int shiftY = coordinateYMap.get(y);
-                    if (other.inBounds(shiftX, shiftY)) {
-                        action.accept(x, y, other.getPrimitive(shiftX, shiftY));
-                    }
-                });
+                loopWithOffset(xOffset, yOffset, center, wrapEdges, size, otherSize,
+                               (x, y, shiftX, shiftY) -> action.accept(x, y, other.getPrimitive(shiftX, shiftY)));
             }
         });
     }
@@ -4,6 +4,8 @@ import com.faforever.neroxis.annotations.GraphMethod;
 import com.faforever.neroxis.annotations.GraphParameter;
 import com.faforever.neroxis.map.SymmetrySettings;
 import com.faforever.neroxis.map.SymmetryType;
+import com.faforever.neroxis.util.ScratchArrays;
+import com.faforever.neroxis.util.XxHash64;
 import com.faforever.neroxis.util.functional.ToIntBiIntFunction;
 import com.faforever.neroxis.util.functional.TriIntConsumer;
 import com.faforever.neroxis.util.vector.Vector2;
@@ -11,10 +13,8 @@ import com.faforever.neroxis.util.vector.Vector2;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
 import java.nio.ByteBuffer;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.IntBuffer;
 import java.util.Arrays;
-import java.util.Map;
 
 @SuppressWarnings({"UnusedReturnValue", "unused"})
 public class IntegerMask extends PrimitiveMask<Integer, IntegerMask> {
@@ -117,9 +117,12 @@ public class IntegerMask extends PrimitiveMask<Integer, IntegerMask> {
     @Override
     @GraphMethod
     public IntegerMask blur(int radius) {
-        int[][] innerCount = getInnerCount();
-        return apply(
-                (x, y) -> setPrimitive(x, y, transformAverage(calculateAreaAverageAsInts(radius, x, y, innerCount))));
+        return enqueue(() -> {
+            int[][] innerCount = getInnerCount();
+            apply((x, y) -> setPrimitive(x, y,
+                                         transformAverage(calculateAreaAverageAsInts(radius, x, y, innerCount))));
+            ScratchArrays.release(innerCount);
+        });
     }
 
     @Override
@@ -134,6 +137,7 @@ public class IntegerMask extends PrimitiveMask<Integer, IntegerMask> {
                     setPrimitive(x, y, transformAverage(calculateAreaAverageAsInts(radius, x, y, innerCount)));
                 }
             });
+            ScratchArrays.release(innerCount);
         }, other);
     }
 
@@ -147,11 +151,40 @@ public class IntegerMask extends PrimitiveMask<Integer, IntegerMask> {
         enqueue(() -> mask = new int[size][size]);
     }
 
+    @Override
+    public long getSpillBytes() {
+        int size = getImmediateSize();
+        return (long) size * size * Integer.BYTES;
+    }
+
+    @Override
+    protected void writeSpill(ByteBuffer buffer) {
+        IntBuffer spillBuffer = buffer.asIntBuffer();
+        for (int[] row : mask) {
+            spillBuffer.put(row);
+        }
+        mask = null;
+    }
+
+    @Override
+    protected void readSpill(ByteBuffer buffer, int size) {
+        IntBuffer spillBuffer = buffer.asIntBuffer();
+        mask = new int[size][size];
+        for (int[] row : mask) {
+            spillBuffer.get(row);
+        }
+    }
+
     @Override
     protected int getImmediateSize() {
         return mask.length;
     }
 
+    @Override
+    protected int getElementBlockCount() {
+        return mask.length;
+    }
+
     @Override
     public BufferedImage writeToImage(BufferedImage image) {
         return writeToImage(image, 1f);
@@ -166,15 +199,10 @@ public class IntegerMask extends PrimitiveMask<Integer, IntegerMask> {
     }
 
     @Override
-    public String toHash() throws NoSuchAlgorithmException {
-        ByteBuffer bytes = ByteBuffer.allocate(getSize() * getSize() * 4);
-        loopWithSymmetry(SymmetryType.SPAWN, (x, y) -> bytes.putInt(getPrimitive(x, y)));
-        byte[] data = MessageDigest.getInstance("MD5").digest(bytes.array());
-        StringBuilder stringBuilder = new StringBuilder();
-        for (byte datum : data) {
-            stringBuilder.append(String.format("%02x", datum));
+    protected void addToHash(XxHash64 hash) {
+        for (int[] row : mask) {
+            hash.update(row);
         }
-        return stringBuilder.toString();
     }
 
     @Override
@@ -217,9 +245,9 @@ public class IntegerMask extends PrimitiveMask<Integer, IntegerMask> {
             } else if (oldSize != newSize) {
                 int[][] oldMask = mask;
                 initializeMask(newSize);
-                Map<Integer, Integer> coordinateMap = getSymmetricScalingCoordinateMap(oldSize, newSize);
+                int[] coordinateMap = getSymmetricScalingCoordinateMap(oldSize, newSize);
                 applyWithSymmetry(SymmetryType.SPAWN, (x, y) -> {
-                    int value = oldMask[coordinateMap.get(x)][coordinateMap.get(y)];
+                    int value = oldMask[coordinateMap[x]][coordinateMap[y]];
                     applyAtSymmetryPoints(x, y, SymmetryType.SPAWN, (sx, sy) -> setPrimitive(sx, sy, value));
                 });
             }
@@ -282,7 +310,7 @@ public class IntegerMask extends PrimitiveMask<Integer, IntegerMask> {
 
     @Override
     protected int[][] getInnerCount() {
-        int[][] innerCount = new int[getSize()][getSize()];
+        int[][] innerCount = ScratchArrays.borrowIntGrid(getSize());
         apply((x, y) -> calculateInnerValue(innerCount, x, y, getPrimitive(x, y)));
         return innerCount;
     }
@@ -548,49 +576,23 @@ public class IntegerMask extends PrimitiveMask<Integer, IntegerMask> {
             int size = getSize();
             int otherSize = other.getSize();
             int smallerSize = StrictMath.min(size, otherSize);
-            int biggerSize = StrictMath.max(size, otherSize);
             if (smallerSize == otherSize) {
                 if (symmetrySettings.getSpawnSymmetry().isPerfectSymmetry()) {
-                    Map<Integer, Integer> coordinateXMap = getShiftedCoordinateMap(xOffset, center, wrapEdges,
-                                                                                   otherSize, size);
-                    Map<Integer, Integer> coordinateYMap = getShiftedCoordinateMap(yOffset, center, wrapEdges,
-                                                                                   otherSize, size);
-                    other.apply((x, y) -> {
-                        int shiftX = coordinateXMap.get(x);
-                        int shiftY = coordinateYMap.get(y);
-                        if (inBounds(shiftX, shiftY)) {
-                            int value = other.getPrimitive(x, y);
-                            applyAtSymmetryPoints(shiftX, shiftY, SymmetryType.SPAWN,
-                                                  (sx, sy) -> action.accept(x, y, value));
-                        }
+                    loopWithOffset(xOffset, yOffset, center, wrapEdges, otherSize, size, (x, y, shiftX, shiftY) -> {
+                        int value = other.getPrimitive(x, y);
+                        applyAtSymmetryPoints(shiftX, shiftY, SymmetryType.SPAWN,
+                                              (sx, sy) -> action.accept(x, y, value));
                     });
                 } else {
                     applyAtSymmetryPointsWithOutOfBounds(xOffset, yOffset, SymmetryType.SPAWN, (sx, sy) -> {
-                        Map<Integer, Integer> coordinateXMap = getShiftedCoordinateMap(sx, center, wrapEdges, otherSize,
-                                                                                       size);
-                        Map<Integer, Integer> coordinateYMap = getShiftedCoordinateMap(sy, center, wrapEdges, otherSize,
-                                                                                       size);
-                        other.apply((x, y) -> {
-                            int shiftX = coordinateXMap.get(x);
-                            int shiftY = coordinateYMap.get(y);
-                            if (inBounds(shiftX, shiftY)) {
-                                action.accept(shiftX, shiftY, other.getPrimitive(x, y));
-                            }
+                        loopWithOffset(sx, sy, center, wrapEdges, otherSize, size, (x, y, shiftX, shiftY) -> {
+                            action.accept(shiftX, shiftY, other.getPrimitive(x, y));
                         });
                     });
                 }
             } else {
-                Map<Integer, Integer> coordinateXMap = getShiftedCoordinateMap(xOffset, center, wrapEdges, size,
-                                                                               otherSize);
-                Map<Integer, Integer> coordinateYMap = getShiftedCoordinateMap(yOffset, center, wrapEdges, size,
-                                                                               otherSize);
-                apply((x, y) -> {
-                    int shiftX = coordinateXMap.get(x);
-                    int shiftY = coordinateYMap.get(y);
-                    if (other.inBounds(shiftX, shiftY)) {
-                        action.accept(x, y, other.getPrimitive(shiftX, shiftY));
-                    }
-                });
+                loopWithOffset(xOffset, yOffset, center, wrapEdges, size, otherSize,
+                               (x, y, shiftX, shiftY) -> action.accept(x, y, other.getPrimitive(shiftX, shiftY)));
             }
         });
     }
@@ -6,9 +6,12 @@ import com.faforever.neroxis.map.SymmetrySettings;
 import com.faforever.neroxis.map.SymmetryType;
 import com.faforever.neroxis.util.DebugUtil;
 import com.faforever.neroxis.util.Pipeline;
+import com.faforever.neroxis.util.SpillFile;
+import com.faforever.neroxis.util.XxHash64;
 import com.faforever.neroxis.util.functional.BiIntConsumer;
 import com.faforever.neroxis.util.functional.BiIntFunction;
 import com.faforever.neroxis.util.functional.BiIntObjConsumer;
+import com.faforever.neroxis.util.functional.QuadIntConsumer;
 import com.faforever.neroxis.util.vector.Vector2;
 import com.faforever.neroxis.util.vector.Vector3;
 import com.faforever.neroxis.visualization.VisualDebugger;
@@ -17,17 +20,15 @@ import lombok.Setter;
 import lombok.SneakyThrows;
 
 import java.awt.image.BufferedImage;
-import java.security.NoSuchAlgorithmException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 @SuppressWarnings({"unchecked", "UnusedReturnValue", "unused"})
 public abstract class Mask<T, U extends Mask<T, U>> {
@@ -50,6 +51,9 @@ public abstract class Mask<T, U extends Mask<T, U>> {
     private boolean mock;
     @Setter
     private String visualName;
+    private SpillFile spillFile;
+    private volatile SpillFile.Region spillRegion;
+    private int spilledSize;
 
     protected Mask(U other, String name) {
         this(other.getSize(), (name != null && name.endsWith(MOCK_NAME)) ? null : other.getNextSeed(),
@@ -71,18 +75,78 @@ public abstract class Mask<T, U extends Mask<T, U>> {
         return wrapEdges ? (val + offset + size) % size : val + offset;
     }
 
-    protected static Map<Integer, Integer> getSymmetricScalingCoordinateMap(int currentSize, int scaledSize) {
+    /**
+     * Returns a table from each coordinate of the scaled mask to the coordinate of the current mask it samples
+     */
+    protected static int[] getSymmetricScalingCoordinateMap(int currentSize, int scaledSize) {
         float scale = (float) currentSize / scaledSize;
         float halfScaledSize = scaledSize / 2f;
-        Map<Integer, Integer> map = new LinkedHashMap<>();
+        int[] map = new int[scaledSize];
         for (int i = 0; i < StrictMath.ceil(halfScaledSize); ++i) {
             int scaledI = (int) StrictMath.floor(i * scale);
-            map.put(i, scaledI);
-            map.put(scaledSize - 1 - i, currentSize - 1 - scaledI);
+            map[i] = scaledI;
+            map[scaledSize - 1 - i] = currentSize - 1 - scaledI;
+        }
+        return map;
+    }
+
+    /**
+     * Returns a table from each coordinate of a mask of {@code fromSize} to its coordinate shifted by the offset
+     */
+    protected static int[] getShiftedCoordinateMap(int offset, boolean center, boolean wrapEdges, int fromSize,
+                                                   int toSize) {
+        int trueOffset = getTrueOffset(offset, center, fromSize);
+        int[] map = new int[fromSize];
+        for (int i = 0; i < fromSize; ++i) {
+            map[i] = getShiftedValue(i, trueOffset, toSize, wrapEdges);
         }
         return map;
     }
 
+    private static int getTrueOffset(int offset, boolean center, int fromSize) {
+        return center ? offset - fromSize / 2 : offset;
+    }
+
+    /**
+     * Calls the action with every coordinate of a mask of {@code fromSize} whose shifted coordinate lies within a
+     * mask of {@code toSize}, in row order. Without edge wrapping the shift is a pure translation so only the
+     * overlapping span of each row is visited and no table or bounds check is needed
+     *
+     * @param action called with the unshifted x and y followed by the shifted x and y
+     */
+    protected static void loopWithOffset(int xOffset, int yOffset, boolean center, boolean wrapEdges, int fromSize,
+                                         int toSize, QuadIntConsumer action) {
+        if (!wrapEdges) {
+            int shiftX = getTrueOffset(xOffset, center, fromSize);
+            int shiftY = getTrueOffset(yOffset, center, fromSize);
+            int minX = StrictMath.max(0, -shiftX);
+            int maxX = StrictMath.min(fromSize, toSize - shiftX);
+            int minY = StrictMath.max(0, -shiftY);
+            int maxY = StrictMath.min(fromSize, toSize - shiftY);
+            for (int x = minX; x < maxX; x++) {
+                for (int y = minY; y < maxY; y++) {
+                    action.accept(x, y, x + shiftX, y + shiftY);
+                }
+            }
+            return;
+        }
+
+        int[] coordinateXMap = getShiftedCoordinateMap(xOffset, center, true, fromSize, toSize);
+        int[] coordinateYMap = getShiftedCoordinateMap(yOffset, center, true, fromSize, toSize);
+        for (int x = 0; x < fromSize; x++) {
+            int shiftX = coordinateXMap[x];
+            if (shiftX < 0 || shiftX >= toSize) {
+                continue;
+            }
+            for (int y = 0; y < fromSize; y++) {
+                int shiftY = coordinateYMap[y];
+                if (shiftY >= 0 && shiftY < toSize) {
+                    action.accept(x, y, shiftX, shiftY);
+                }
+            }
+        }
+    }
+
     public U init(U other) {
         plannedSize = other.getSize();
         return copyFrom(other);
@@ -119,6 +183,8 @@ public abstract class Mask<T, U extends Mask<T, U>> {
     public int getSize() {
         if (parallel && !Pipeline.isRunning()) {
             return plannedSize;
+        } else if (spillRegion != null) {
+            return spilledSize;
         } else {
             return getImmediateSize();
         }
@@ -135,13 +201,20 @@ public abstract class Mask<T, U extends Mask<T, U>> {
     public U setSize(int newSize) {
         int size = getSize();
         if (newSize != size) {
-            plannedSize = newSize;
-            return enqueue(() -> setSizeInternal(newSize));
+            return enqueueResize(newSize, () -> setSizeInternal(newSize));
         } else {
             return (U) this;
         }
     }
 
+    /**
+     * Enqueues an operation that leaves the mask at the given size
+     */
+    protected U enqueueResize(int newSize, Runnable function) {
+        plannedSize = newSize;
+        return enqueue(function);
+    }
+
     protected abstract void initializeMask(int size);
 
     protected Long getNextSeed() {
@@ -154,7 +227,18 @@ public abstract class Mask<T, U extends Mask<T, U>> {
 
     public abstract BufferedImage toImage();
 
-    public abstract String toHash() throws NoSuchAlgorithmException;
+    /**
+     * Returns an xxHash64 fingerprint of the mask size and its full backing storage.
+     * The storage is streamed into the hasher directly so no copy of the mask is made
+     */
+    public String toHash() {
+        XxHash64 hash = new XxHash64();
+        hash.update(getImmediateSize());
+        addToHash(hash);
+        return hash.toHexString();
+    }
+
+    protected abstract void addToHash(XxHash64 hash);
 
     public String getVisualName() {
         return visualName != null ? visualName : (name != null ? name : toString());
@@ -207,11 +291,92 @@ public abstract class Mask<T, U extends Mask<T, U>> {
         return enqueue(ignored -> function.run());
     }
 
+    /**
+     * Enqueues an operation that combines each element only with the elements at the same position in this and the
+     * used masks. Consecutive element wise operations on a pipelined mask share a single pipeline entry and pass
+     * over the mask
+     *
+     * @param kernelFactory creates the kernel applying the operation to one element block, given the used masks
+     * @param usedMasks     the masks the operation reads
+     */
+    protected U enqueueElementWise(Function<List<Mask<?, ?>>, IntConsumer> kernelFactory, Mask<?, ?>... usedMasks) {
+        return enqueue(new ElementWiseOperation(this, kernelFactory, usedMasks.length), usedMasks);
+    }
+
+    /**
+     * Returns the number of element blocks element wise kernels are applied to
+     */
+    protected abstract int getElementBlockCount();
+
     private void makeImmutable() {
         immutable = true;
         mock = true;
     }
 
+    /**
+     * Moves the contents of the mask to the spill file and drops them from the heap. The mask must not be read until
+     * {@link #unspill()} is called
+     *
+     * @return whether the contents were spilled
+     */
+    public synchronized boolean spill(SpillFile file) {
+        if (spillRegion != null) {
+            return false;
+        }
+        long spillBytes = getSpillBytes();
+        if (spillBytes == 0) {
+            return false;
+        }
+        SpillFile.Region region = file.allocate(spillBytes);
+        spilledSize = getImmediateSize();
+        writeSpill(file.map(region));
+        spillFile = file;
+        spillRegion = region;
+        return true;
+    }
+
+    /**
+     * Reads the contents back from the spill file if the mask was spilled
+     */
+    public synchronized void unspill() {
+        if (spillRegion == null) {
+            return;
+        }
+        readSpill(spillFile.map(spillRegion), spilledSize);
+        discardSpill();
+    }
+
+    /**
+     * Frees the spilled contents without reading them back
+     */
+    public synchronized void discardSpill() {
+        if (spillRegion == null) {
+            return;
+        }
+        spillFile.free(spillRegion);
+        spillFile = null;
+        spillRegion = null;
+    }
+
+    /**
+     * Returns the number of bytes the contents take in the spill file
+     */
+    public abstract long getSpillBytes();
+
+    /**
+     * Writes the contents to the buffer and releases the backing storage
+     */
+    protected abstract void writeSpill(ByteBuffer buffer);
+
+    /**
+     * Recreates the backing storage for the given size from the buffer
+     */
+    protected abstract void readSpill(ByteBuffer buffer, int size);
+
+    public synchronized boolean isSpilled() {
+        return spillRegion != null;
+    }
+
     /**
      * Set the mask to all zeros
      *
@@ -231,6 +396,8 @@ public abstract class Mask<T, U extends Mask<T, U>> {
             }
             Pipeline.add(this, dependencies, function);
         } else {
+            unspill();
+            dependencies.forEach(Mask::unspill);
             boolean visibleState = visible;
             visible = false;
             function.accept(dependencies);
@@ -535,8 +702,7 @@ public abstract class Mask<T, U extends Mask<T, U>> {
     public U resample(int newSize) {
         int size = getSize();
         if (newSize != size) {
-            plannedSize = newSize;
-            return enqueue(() -> {
+            return enqueueResize(newSize, () -> {
                 if (size < newSize) {
                     setSize(newSize);
                     blur(StrictMath.round((float) newSize / size / 2 - 1));
@@ -734,50 +900,23 @@ public abstract class Mask<T, U extends Mask<T, U>> {
             int size = getSize();
             int otherSize = other.getSize();
             int smallerSize = StrictMath.min(size, otherSize);
-            int biggerSize = StrictMath.max(size, otherSize);
             if (smallerSize == otherSize) {
                 if (symmetrySettings.getSpawnSymmetry().isPerfectSymmetry()) {
-                    Map<Integer, Integer> coordinateXMap = getShiftedCoordinateMap(xOffset, center, wrapEdges,
-                                                                                   otherSize, size);
-                    Map<Integer, Integer> coordinateYMap = getShiftedCoordinateMap(yOffset, center, wrapEdges,
-                                                                                   otherSize, size);
-                    other.apply((x, y) -> {
-                        int shiftX = coordinateXMap.get(x);
-                        int shiftY = coordinateYMap.get(y);
-                        if (inBounds(shiftX, shiftY)) {
-                            T value = other.get(x, y);
-                            applyAtSymmetryPoints(shiftX, shiftY, SymmetryType.SPAWN,
-                                                  (sx, sy) -> action.accept(sx, sy, value));
-                        }
+                    loopWithOffset(xOffset, yOffset, center, wrapEdges, otherSize, size, (x, y, shiftX, shiftY) -> {
+                        T value = other.get(x, y);
+                        applyAtSymmetryPoints(shiftX, shiftY, SymmetryType.SPAWN,
+                                              (sx, sy) -> action.accept(sx, sy, value));
                     });
                 } else {
                     applyAtSymmetryPointsWithOutOfBounds(xOffset, yOffset, SymmetryType.SPAWN, (sx, sy) -> {
-                        Map<Integer, Integer> coordinateXMap = getShiftedCoordinateMap(sx, center, wrapEdges, otherSize,
-                                                                                       size);
-                        Map<Integer, Integer> coordinateYMap = getShiftedCoordinateMap(sy, center, wrapEdges, otherSize,
-                                                                                       size);
-                        other.apply((x, y) -> {
-                            int shiftX = coordinateXMap.get(x);
-                            int shiftY = coordinateYMap.get(y);
-                            if (inBounds(shiftX, shiftY)) {
-                                action.accept(shiftX, shiftY, other.get(x, y));
-                            }
+                        loopWithOffset(sx, sy, center, wrapEdges, otherSize, size, (x, y, shiftX, shiftY) -> {
+                            action.accept(shiftX, shiftY, other.get(x, y));
                         });
                     });
                 }
             } else {
-                Map<Integer, Integer> coordinateXMap = getShiftedCoordinateMap(xOffset, center, wrapEdges, size,
-                                                                               otherSize);
-                Map<Integer, Integer> coordinateYMap = getShiftedCoordinateMap(yOffset, center, wrapEdges, size,
-                                                                               otherSize);
-                apply((x, y) -> {
-                    int shiftX = coordinateXMap.get(x);
-                    int shiftY = coordinateYMap.get(y);
-                    if (other.inBounds(shiftX, shiftY)) {
-                        T value = other.get(shiftX, shiftY);
-                        action.accept(x, y, value);
-                    }
-                });
+                loopWithOffset(xOffset, yOffset, center, wrapEdges, size, otherSize,
+                               (x, y, shiftX, shiftY) -> action.accept(x, y, other.get(shiftX, shiftY)));
             }
         });
     }
@@ -791,8 +930,7 @@ public abstract class Mask<T, U extends Mask<T, U>> {
     }
 
     protected void populateCoordinateMaps(int xCoordinate, int yCoordinate, boolean center, boolean wrapEdges,
-                                          int fromSize, int toSize, Map<Integer, Integer> coordinateXMap,
-                                          Map<Integer, Integer> coordinateYMap) {
+                                          int fromSize, int toSize, int[] coordinateXMap, int[] coordinateYMap) {
         int offsetX;
         int offsetY;
         if (center) {
@@ -803,25 +941,11 @@ public abstract class Mask<T, U extends Mask<T, U>> {
             offsetY = yCoordinate;
         }
         for (int i = 0; i < fromSize; ++i) {
-            coordinateXMap.put(i, getShiftedValue(i, offsetX, toSize, wrapEdges));
-            coordinateYMap.put(i, getShiftedValue(i, offsetY, toSize, wrapEdges));
+            coordinateXMap[i] = getShiftedValue(i, offsetX, toSize, wrapEdges);
+            coordinateYMap[i] = getShiftedValue(i, offsetY, toSize, wrapEdges);
         }
     }
 
-    protected Map<Integer, Integer> getShiftedCoordinateMap(int offset, boolean center, boolean wrapEdges, int fromSize,
-                                                            int toSize) {
-        int trueOffset;
-        if (center) {
-            trueOffset = offset - fromSize / 2;
-        } else {
-            trueOffset = offset;
-        }
-
-        return IntStream.range(0, fromSize)
-                        .boxed()
-                        .collect(Collectors.toMap(i -> i, i -> getShiftedValue(i, trueOffset, toSize, wrapEdges)));
-    }
-
     protected void loopWithSymmetry(SymmetryType symmetryType, BiIntConsumer maskAction) {
         assertNotPipelined();
         int minX = getMinXBound(symmetryType);
@@ -1012,12 +1136,18 @@ public abstract class Mask<T, U extends Mask<T, U>> {
             float dy;
             float radius2 = (radius + .5f) * (radius + .5f);
             float radiansToDegreeFactor = (float) (180 / StrictMath.PI);
+            // Every angle lies in [0, 360) so a full circle needs no angle per pixel
+            boolean fullCircle = startAngle <= 0 && endAngle >= 360;
             for (int cx = StrictMath.round(x - radius); cx < StrictMath.round(x + radius + 1); cx++) {
                 for (int cy = StrictMath.round(y - radius); cy < StrictMath.round(y + radius + 1); cy++) {
                     dx = x - cx;
                     dy = y - cy;
-                    float angle = (float) (StrictMath.atan2(dy, dx) / radiansToDegreeFactor + 360) % 360;
-                    if (inBounds(cx, cy) && dx * dx + dy * dy <= radius2 && angle >= startAngle && angle <= endAngle) {
+                    if (!inBounds(cx, cy) || dx * dx + dy * dy > radius2) {
+                        continue;
+                    }
+                    float angle = fullCircle ? 0 :
+                                  (float) (StrictMath.atan2(dy, dx) / radiansToDegreeFactor + 360) % 360;
+                    if (angle >= startAngle && angle <= endAngle) {
                         set(cx, cy, value);
                     }
                 }
@@ -12,6 +12,10 @@ public abstract class PrimitiveMask<T extends Comparable<T>, U extends Comparabl
         super(other, name);
     }
 
+    /**
+     * Returns the summed area table of the mask. The table is borrowed from
+     * {@link com.faforever.neroxis.util.ScratchArrays} and should be released once it is no longer used
+     */
     protected abstract int[][] getInnerCount();
 
     protected void calculateInnerValue(int[][] innerCount, int x, int y, int val) {
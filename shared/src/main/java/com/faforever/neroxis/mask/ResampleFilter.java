@@ -0,0 +1,20 @@
+package com.faforever.neroxis.mask;
+
+/**
+ * Reconstruction filters used to resample a mask to a different size
+ */
+public enum ResampleFilter {
+    /**
+     * Linear interpolation between the two nearest pixels, widened to a tent over all covered pixels when shrinking
+     */
+    BILINEAR,
+    /**
+     * Catmull-Rom interpolation over the four nearest pixels, widened accordingly when shrinking. Smoothest for
+     * upscaling but may slightly overshoot at sharp steps
+     */
+    BICUBIC,
+    /**
+     * Average of the covered pixels weighted by their overlap with the scaled pixel
+     */
+    AREA
+}
@@ -0,0 +1,147 @@
+package com.faforever.neroxis.mask;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Separable resampling of square float grids. The weights only depend on the filter and the source and target sizes
+ * so they are computed once per combination and shared, keeping the most recently used tables. Every output value is a sum over a fixed list of taps in a
+ * fixed order, so the result does not depend on how the rows are spread over threads
+ */
+final class Resampler {
+    private static final int MAX_WEIGHT_TABLES = 32;
+    private static final Map<TableKey, WeightTable> WEIGHT_TABLES = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, .75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<TableKey, WeightTable> eldest) {
+                    return size() > MAX_WEIGHT_TABLES;
+                }
+            });
+
+    private Resampler() {}
+
+    static float[][] resample(float[][] source, int targetSize, ResampleFilter filter) {
+        int sourceSize = source.length;
+        WeightTable table = WEIGHT_TABLES.computeIfAbsent(new TableKey(filter, sourceSize, targetSize),
+                                                          Resampler::createWeightTable);
+        float[][] intermediate = new float[sourceSize][targetSize];
+        IntStream.range(0, sourceSize).parallel().forEach(x -> table.resampleRow(source[x], intermediate[x]));
+
+        float[][] result = new float[targetSize][targetSize];
+        IntStream.range(0, targetSize).parallel().forEach(x -> table.resampleColumns(intermediate, x, result[x]));
+        return result;
+    }
+
+    private static WeightTable createWeightTable(TableKey key) {
+        int sourceSize = key.sourceSize();
+        int targetSize = key.targetSize();
+        double scale = (double) sourceSize / targetSize;
+        double filterScale = StrictMath.max(1d, scale);
+        int capacity = targetSize * ((int) StrictMath.ceil(4 * filterScale) + 2);
+        int[] offsets = new int[targetSize + 1];
+        int[] indices = new int[capacity];
+        double[] weights = new double[capacity];
+        int tapCount = 0;
+        for (int i = 0; i < targetSize; i++) {
+            int firstTap = tapCount;
+            int start;
+            int end;
+            double center;
+            if (key.filter() == ResampleFilter.AREA) {
+                center = 0;
+                start = (int) StrictMath.floor(i * scale);
+                end = (int) StrictMath.ceil((i + 1) * scale);
+            } else {
+                double support = getRadius(key.filter()) * filterScale;
+                center = (i + .5) * scale - .5;
+                start = (int) StrictMath.ceil(center - support);
+                end = (int) StrictMath.floor(center + support) + 1;
+            }
+
+            double weightSum = 0;
+            for (int j = start; j < end; j++) {
+                double weight = key.filter() == ResampleFilter.AREA ?
+                                StrictMath.min((i + 1) * scale, j + 1) - StrictMath.max(i * scale, j) :
+                                getKernelWeight(key.filter(), (j - center) / filterScale);
+                if (weight == 0 || (key.filter() == ResampleFilter.AREA && weight < 0)) {
+                    continue;
+                }
+                if (tapCount == indices.length) {
+                    indices = Arrays.copyOf(indices, tapCount * 2);
+                    weights = Arrays.copyOf(weights, tapCount * 2);
+                }
+                indices[tapCount] = StrictMath.min(sourceSize - 1, StrictMath.max(0, j));
+                weights[tapCount] = weight;
+                weightSum += weight;
+                tapCount++;
+            }
+
+            for (int tap = firstTap; tap < tapCount; tap++) {
+                weights[tap] /= weightSum;
+            }
+            offsets[i + 1] = tapCount;
+        }
+
+        float[] floatWeights = new float[tapCount];
+        for (int tap = 0; tap < tapCount; tap++) {
+            floatWeights[tap] = (float) weights[tap];
+        }
+        return new WeightTable(offsets, Arrays.copyOf(indices, tapCount), floatWeights);
+    }
+
+    private static double getRadius(ResampleFilter filter) {
+        return switch (filter) {
+            case BILINEAR -> 1;
+            case BICUBIC -> 2;
+            case AREA -> throw new IllegalArgumentException("Area filter has no kernel");
+        };
+    }
+
+    private static double getKernelWeight(ResampleFilter filter, double x) {
+        double distance = StrictMath.abs(x);
+        return switch (filter) {
+            case BILINEAR -> StrictMath.max(0, 1 - distance);
+            case BICUBIC -> {
+                if (distance < 1) {
+                    yield (1.5 * distance - 2.5) * distance * distance + 1;
+                } else if (distance < 2) {
+                    yield ((-.5 * distance + 2.5) * distance - 4) * distance + 2;
+                } else {
+                    yield 0;
+                }
+            }
+            case AREA -> throw new IllegalArgumentException("Area filter has no kernel");
+        };
+    }
+
+    private record TableKey(ResampleFilter filter, int sourceSize, int targetSize) {}
+
+    /**
+     * Taps of target coordinate i are the entries offsets[i] until offsets[i + 1] of indices and weights
+     */
+    private record WeightTable(int[] offsets, int[] indices, float[] weights) {
+        private void resampleRow(float[] source, float[] target) {
+            for (int i = 0; i < target.length; i++) {
+                float value = 0;
+                for (int tap = offsets[i]; tap < offsets[i + 1]; tap++) {
+                    value += weights[tap] * source[indices[tap]];
+                }
+                target[i] = value;
+            }
+        }
+
+        private void resampleColumns(float[][] sourceRows, int i, float[] target) {
+            Arrays.fill(target, 0);
+            for (int tap = offsets[i]; tap < offsets[i + 1]; tap++) {
+                float weight = weights[tap];
+                float[] sourceRow = sourceRows[indices[tap]];
+                for (int j = 0; j < target.length; j++) {
+                    target[j] += weight * sourceRow[j];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.faforever.neroxis.mask;
+
+import com.faforever.neroxis.util.functional.ToBooleanBiIntFunction;
+import com.faforever.neroxis.util.vector.Vector2;
+import com.faforever.neroxis.util.vector.Vector3;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Candidate pixels for spaced placement, given as bit indices {@code x * size + y} in ascending order. The remaining
+ * candidates keep their order, can be taken by rank and are removed around placed points through a grid of cells, so
+ * every placement only touches the candidates near it instead of the whole list. Placers can also clear and select
+ * circles on them the way they would fill circles on a mask, without allocating one
+ */
+public final class SpacedCandidates {
+    private static final int MIN_CELL_SIZE = 8;
+    private final int[] indices;
+    private final int size;
+    private final boolean[] removed;
+    private final int[] rankTree;
+    private final int cellSize;
+    private final int cellsPerRow;
+    private final int[] cellOffsets;
+    private final int[] cellMembers;
+    private final int[] cellRemainingCounts;
+    private int remainingCount;
+
+    /**
+     * @param maxRadius the largest radius candidates will be removed around, used to size the grid cells
+     */
+    SpacedCandidates(int[] indices, int size, float maxRadius) {
+        this.indices = indices;
+        this.size = size;
+        int count = indices.length;
+        removed = new boolean[count];
+        remainingCount = count;
+        rankTree = new int[count + 1];
+        for (int i = 1; i <= count; i++) {
+            rankTree[i]++;
+            int parent = i + (i & -i);
+            if (parent <= count) {
+                rankTree[parent] += rankTree[i];
+            }
+        }
+
+        cellSize = StrictMath.max(MIN_CELL_SIZE, (int) StrictMath.ceil(maxRadius));
+        cellsPerRow = (size + cellSize - 1) / cellSize;
+        int cellCount = cellsPerRow * cellsPerRow;
+        cellOffsets = new int[cellCount + 1];
+        cellRemainingCounts = new int[cellCount];
+        for (int index : indices) {
+            cellRemainingCounts[getCell(index)]++;
+        }
+        for (int cell = 0; cell < cellCount; cell++) {
+            cellOffsets[cell + 1] = cellOffsets[cell] + cellRemainingCounts[cell];
+        }
+        cellMembers = new int[count];
+        int[] cellFill = new int[cellCount];
+        for (int i = 0; i < count; i++) {
+            int cell = getCell(indices[i]);
+            cellMembers[cellOffsets[cell] + cellFill[cell]++] = i;
+        }
+    }
+
+    private int getCell(int index) {
+        return (index / size) / cellSize * cellsPerRow + (index % size) / cellSize;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getRemainingCount() {
+        return remainingCount;
+    }
+
+    public boolean isRemaining(int x, int y) {
+        if (x < 0 || x >= size || y < 0 || y >= size) {
+            return false;
+        }
+        int position = Arrays.binarySearch(indices, x * size + y);
+        return position >= 0 && !removed[position];
+    }
+
+    /**
+     * Returns new candidates holding the remaining candidates in the same order
+     */
+    public SpacedCandidates copy() {
+        return select((x, y) -> true);
+    }
+
+    /**
+     * Returns new candidates holding the remaining candidates accepted by {@code filter}, in the same order
+     */
+    public SpacedCandidates select(ToBooleanBiIntFunction filter) {
+        int[] selected = new int[remainingCount];
+        int count = 0;
+        for (int position = 0; position < indices.length; position++) {
+            int index = indices[position];
+            if (!removed[position] && filter.apply(index / size, index % size)) {
+                selected[count++] = index;
+            }
+        }
+        return new SpacedCandidates(Arrays.copyOf(selected, count), size, cellSize);
+    }
+
+    public SpacedCandidates selectCircle(Vector3 center, float radius) {
+        return selectCircle(center.getX(), center.getZ(), radius);
+    }
+
+    public SpacedCandidates selectCircle(Vector2 center, float radius) {
+        return selectCircle(center.getX(), center.getY(), radius);
+    }
+
+    /**
+     * Returns new candidates holding the remaining candidates in the pixels
+     * {@link Mask#fillCircle(float, float, float, Object)} covers, in the same order
+     */
+    public SpacedCandidates selectCircle(float x, float y, float radius) {
+        int[] selected = new int[remainingCount];
+        int[] count = new int[1];
+        forEachRemainingInCircle(x, y, radius, position -> selected[count[0]++] = indices[position]);
+        int[] selectedIndices = Arrays.copyOf(selected, count[0]);
+        Arrays.sort(selectedIndices);
+        return new SpacedCandidates(selectedIndices, size, cellSize);
+    }
+
+    public void removeCircle(Vector3 center, float radius) {
+        removeCircle(center.getX(), center.getZ(), radius);
+    }
+
+    public void removeCircle(Vector2 center, float radius) {
+        removeCircle(center.getX(), center.getY(), radius);
+    }
+
+    /**
+     * Removes the remaining candidates in the pixels {@link Mask#fillCircle(float, float, float, Object)} covers
+     */
+    public void removeCircle(float x, float y, float radius) {
+        forEachRemainingInCircle(x, y, radius, this::remove);
+    }
+
+    private void forEachRemainingInCircle(float x, float y, float radius, IntConsumer action) {
+        float radius2 = (radius + .5f) * (radius + .5f);
+        int minX = StrictMath.max(0, StrictMath.round(x - radius));
+        int maxX = StrictMath.min(size, StrictMath.round(x + radius + 1));
+        int minY = StrictMath.max(0, StrictMath.round(y - radius));
+        int maxY = StrictMath.min(size, StrictMath.round(y + radius + 1));
+        if (minX >= maxX || minY >= maxY) {
+            return;
+        }
+        for (int cellX = minX / cellSize; cellX <= (maxX - 1) / cellSize; cellX++) {
+            for (int cellY = minY / cellSize; cellY <= (maxY - 1) / cellSize; cellY++) {
+                int cell = cellX * cellsPerRow + cellY;
+                if (cellRemainingCounts[cell] == 0) {
+                    continue;
+                }
+                for (int i = cellOffsets[cell]; i < cellOffsets[cell + 1]; i++) {
+                    int position = cellMembers[i];
+                    if (removed[position]) {
+                        continue;
+                    }
+                    int cx = indices[position] / size;
+                    int cy = indices[position] % size;
+                    float dx = x - cx;
+                    float dy = y - cy;
+                    if (cx >= minX && cx < maxX && cy >= minY && cy < maxY && dx * dx + dy * dy <= radius2) {
+                        action.accept(position);
+                    }
+                }
+            }
+        }
+    }
+
+    void forEachRemaining(IntConsumer action) {
+        for (int position = 0; position < indices.length; position++) {
+            if (!removed[position]) {
+                action.accept(indices[position]);
+            }
+        }
+    }
+
+    /**
+     * Removes the remaining candidate at the given rank and returns its bit index
+     */
+    int removeAt(int rank) {
+        int position = 0;
+        int remainingRank = rank;
+        for (int step = Integer.highestOneBit(StrictMath.max(1, indices.length)); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= indices.length && rankTree[next] <= remainingRank) {
+                position = next;
+                remainingRank -= rankTree[next];
+            }
+        }
+        remove(position);
+        return indices[position];
+    }
+
+    /**
+     * Removes all remaining candidates closer than {@code radius} to the point, measured like
+     * {@link com.faforever.neroxis.util.vector.Vector#getDistance}
+     */
+    void removeWithin(float x, float y, float radius) {
+        if (!(radius > 0)) {
+            return;
+        }
+        int minCellX = StrictMath.max(0, (int) StrictMath.floor((x - radius - 1) / cellSize));
+        int maxCellX = StrictMath.min(cellsPerRow - 1, (int) StrictMath.floor((x + radius + 1) / cellSize));
+        int minCellY = StrictMath.max(0, (int) StrictMath.floor((y - radius - 1) / cellSize));
+        int maxCellY = StrictMath.min(cellsPerRow - 1, (int) StrictMath.floor((y + radius + 1) / cellSize));
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+                int cell = cellX * cellsPerRow + cellY;
+                if (cellRemainingCounts[cell] == 0) {
+                    continue;
+                }
+                for (int i = cellOffsets[cell]; i < cellOffsets[cell + 1]; i++) {
+                    int position = cellMembers[i];
+                    if (removed[position]) {
+                        continue;
+                    }
+                    int index = indices[position];
+                    float dx = x - index / size;
+                    float dy = y - index % size;
+                    float sum = 0;
+                    sum += dx * dx;
+                    sum += dy * dy;
+                    if ((float) StrictMath.sqrt(sum) < radius) {
+                        remove(position);
+                    }
+                }
+            }
+        }
+    }
+
+    private void remove(int position) {
+        removed[position] = true;
+        remainingCount--;
+        cellRemainingCounts[getCell(indices[position])]--;
+        for (int i = position + 1; i <= indices.length; i += i & -i) {
+            rankTree[i]--;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.faforever.neroxis.mask;
 import com.faforever.neroxis.annotations.GraphMethod;
 import com.faforever.neroxis.map.SymmetrySettings;
 import com.faforever.neroxis.map.SymmetryType;
+import com.faforever.neroxis.util.ScratchArrays;
+import com.faforever.neroxis.util.XxHash64;
 import com.faforever.neroxis.util.functional.ToFloatBiIntFunction;
 import com.faforever.neroxis.util.vector.Vector;
 import com.faforever.neroxis.util.vector.Vector2;
@@ -11,12 +13,10 @@ import java.awt.image.BufferedImage;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.nio.ByteBuffer;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.FloatBuffer;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 @SuppressWarnings({"unchecked", "UnusedReturnValue", "unused"})
@@ -104,11 +104,50 @@ public abstract class VectorMask<T extends Vector<T>, U extends VectorMask<T, U>
         });
     }
 
+    @Override
+    public long getSpillBytes() {
+        int size = getImmediateSize();
+        return (long) size * size * getZeroValue().getDimension() * Float.BYTES;
+    }
+
+    @Override
+    protected void writeSpill(ByteBuffer buffer) {
+        FloatBuffer spillBuffer = buffer.asFloatBuffer();
+        for (T[] row : mask) {
+            for (T value : row) {
+                for (int i = 0; i < value.getDimension(); i++) {
+                    spillBuffer.put(value.get(i));
+                }
+            }
+        }
+        mask = null;
+    }
+
+    @Override
+    protected void readSpill(ByteBuffer buffer, int size) {
+        FloatBuffer spillBuffer = buffer.asFloatBuffer();
+        mask = getNullMask(size);
+        for (T[] row : mask) {
+            for (int y = 0; y < size; y++) {
+                T value = getZeroValue();
+                for (int i = 0; i < value.getDimension(); i++) {
+                    value.set(i, spillBuffer.get());
+                }
+                row[y] = value;
+            }
+        }
+    }
+
     @Override
     protected int getImmediateSize() {
         return mask.length;
     }
 
+    @Override
+    protected int getElementBlockCount() {
+        return mask.length;
+    }
+
     @Override
     public BufferedImage writeToImage(BufferedImage image) {
         int numImageComponents = image.getColorModel().getNumComponents();
@@ -119,22 +158,14 @@ public abstract class VectorMask<T extends Vector<T>, U extends VectorMask<T, U>
     }
 
     @Override
-    public String toHash() throws NoSuchAlgorithmException {
-        int size = getSize();
-        int dimension = get(0, 0).getDimension();
-        ByteBuffer bytes = ByteBuffer.allocate(size * size * 4 * dimension);
-        loopWithSymmetry(SymmetryType.SPAWN, (x, y) -> {
-            Vector<?> value = get(x, y);
-            for (int i = 0; i < dimension; ++i) {
-                bytes.putFloat(value.get(i));
+    protected void addToHash(XxHash64 hash) {
+        for (T[] row : mask) {
+            for (T value : row) {
+                for (int i = 0; i < value.getDimension(); ++i) {
+                    hash.update(value.get(i));
+                }
             }
-        });
-        byte[] data = MessageDigest.getInstance("MD5").digest(bytes.array());
-        StringBuilder stringBuilder = new StringBuilder();
-        for (byte datum : data) {
-            stringBuilder.append(String.format("%02x", datum));
         }
-        return stringBuilder.toString();
     }
 
     @Override
@@ -163,8 +194,8 @@ public abstract class VectorMask<T extends Vector<T>, U extends VectorMask<T, U>
             } else if (oldSize != newSize) {
                 T[][] oldMask = mask;
                 mask = getNullMask(newSize);
-                Map<Integer, Integer> coordinateMap = getSymmetricScalingCoordinateMap(oldSize, newSize);
-                setWithSymmetry(SymmetryType.SPAWN, (x, y) -> oldMask[coordinateMap.get(x)][coordinateMap.get(y)].copy());
+                int[] coordinateMap = getSymmetricScalingCoordinateMap(oldSize, newSize);
+                setWithSymmetry(SymmetryType.SPAWN, (x, y) -> oldMask[coordinateMap[x]][coordinateMap[y]].copy());
             }
         });
     }
@@ -283,6 +314,7 @@ public abstract class VectorMask<T extends Vector<T>, U extends VectorMask<T, U>
             setComponent(
                     (x, y) -> limiter.get(x, y) ? calculateComponentAreaAverage(radius, x, y, innerCount) / 1000f : get(
                             x, y).get(component), component);
+            ScratchArrays.release(innerCount);
         }, other);
     }
 
@@ -303,7 +335,7 @@ public abstract class VectorMask<T extends Vector<T>, U extends VectorMask<T, U>
     }
 
     protected int[][] getComponentInnerCount(int component) {
-        int[][] innerCount = new int[getSize()][getSize()];
+        int[][] innerCount = ScratchArrays.borrowIntGrid(getSize());
         apply((x, y) -> calculateComponentInnerValue(innerCount, x, y,
                                                      StrictMath.round(get(x, y).get(component) * 1000)));
         return innerCount;
@@ -478,8 +510,11 @@ public abstract class VectorMask<T extends Vector<T>, U extends VectorMask<T, U>
 
     @GraphMethod
     public U blurComponent(int radius, int component) {
-        int[][] innerCount = getComponentInnerCount(component);
-        return setComponent((x, y) -> calculateComponentAreaAverage(radius, x, y, innerCount) / 1000f, component);
+        return enqueue(() -> {
+            int[][] innerCount = getComponentInnerCount(component);
+            setComponent((x, y) -> calculateComponentAreaAverage(radius, x, y, innerCount) / 1000f, component);
+            ScratchArrays.release(innerCount);
+        });
     }
 
     public U multiplyComponent(ToFloatBiIntFunction valueFunction, int component) {
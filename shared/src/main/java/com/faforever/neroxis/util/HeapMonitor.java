@@ -0,0 +1,66 @@
+package com.faforever.neroxis.util;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Tracks how much of the heap was still in use right after the latest garbage collection. Unlike the used memory of
+ * the runtime this leaves out the garbage allocated since, so it follows the memory live data takes
+ */
+public final class HeapMonitor {
+    private static final Set<String> HEAP_POOL_NAMES = getHeapPoolNames();
+    private static volatile long usedAfterLastCollection;
+
+    static {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener((notification, handback) -> {
+                    if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(
+                            notification.getType())) {
+                        recordCollection(GarbageCollectionNotificationInfo.from(
+                                (CompositeData) notification.getUserData()));
+                    }
+                }, null, null);
+            }
+        }
+    }
+
+    private HeapMonitor() {}
+
+    private static Set<String> getHeapPoolNames() {
+        return ManagementFactory.getMemoryPoolMXBeans()
+                                .stream()
+                                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                                .map(MemoryPoolMXBean::getName)
+                                .collect(Collectors.toSet());
+    }
+
+    private static void recordCollection(GarbageCollectionNotificationInfo info) {
+        usedAfterLastCollection = info.getGcInfo()
+                                      .getMemoryUsageAfterGc()
+                                      .entrySet()
+                                      .stream()
+                                      .filter(entry -> HEAP_POOL_NAMES.contains(entry.getKey()))
+                                      .mapToLong(entry -> entry.getValue().getUsed())
+                                      .sum();
+    }
+
+    public static long getUsedAfterLastCollection() {
+        return usedAfterLastCollection;
+    }
+
+    /**
+     * Returns whether more than the given fraction of the maximum heap was in use after the latest collection
+     */
+    public static boolean isAbove(float heapFraction) {
+        return usedAfterLastCollection > Runtime.getRuntime().maxMemory() * heapFraction;
+    }
+}
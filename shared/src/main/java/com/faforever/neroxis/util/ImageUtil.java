@@ -19,7 +19,9 @@ import java.awt.image.ColorModel;
 import java.awt.image.ComponentColorModel;
 import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
 import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.io.InputStream;
@@ -29,10 +31,13 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.stream.IntStream;
 
 import static com.faforever.neroxis.util.jsquish.Squish.compressImage;
 
 public class ImageUtil {
+    private static final int IMAGE_BAND_HEIGHT = 64;
+
     public static boolean compareImages(BufferedImage imgA, BufferedImage imgB) {
         if (imgA.getWidth() != imgB.getWidth() || imgA.getHeight() != imgB.getHeight()) {
             return false;
@@ -68,24 +73,168 @@ public class ImageUtil {
         return imageScaled;
     }
 
-    public static BufferedImage insertImageIntoNewImageOfSize(BufferedImage image, int width, int height,
-                                                              Vector2 locToInsertTopLeft) {
-        BufferedImage newImage = new BufferedImage(width, height, image.getType());
+    /**
+     * Resamples the image to the given size with bilinear filtering, multiplying every sample by the value scale.
+     * The output is produced in bands of rows which are processed in parallel and written straight into the
+     * output raster, so apart from the output only a few rows per band are held in memory
+     */
+    public static BufferedImage resampleImage(BufferedImage image, int width, int height, float valueScale) {
+        int newWidth = StrictMath.max(width, 1);
+        int newHeight = StrictMath.max(height, 1);
+        BufferedImage newImage = createCompatibleImage(image, newWidth, newHeight);
         WritableRaster newImageRaster = newImage.getRaster();
-        Raster imageRaster = image.getData();
-        for (int x = 0; x < image.getWidth(); x++) {
-            for (int y = 0; y < image.getHeight(); y++) {
-                int newX = x + (int) locToInsertTopLeft.getX();
-                int newY = y + (int) locToInsertTopLeft.getY();
-                if (inImageBounds(newX, newY, newImage)) {
-                    newImageRaster.setPixel(newX, newY, imageRaster.getPixel(x, y, new int[image.getColorModel()
-                                                                                                .getNumComponents()]));
+        Raster imageRaster = image.getRaster();
+        int imageWidth = imageRaster.getWidth();
+        int imageHeight = imageRaster.getHeight();
+        int numBands = imageRaster.getNumBands();
+
+        float[] maxValues = new float[numBands];
+        boolean integral = imageRaster.getTransferType() != DataBuffer.TYPE_FLOAT
+                           && imageRaster.getTransferType() != DataBuffer.TYPE_DOUBLE;
+        for (int band = 0; band < numBands; ++band) {
+            maxValues[band] = integral ? (float) ((1L << imageRaster.getSampleModel().getSampleSize(band)) - 1) :
+                              Float.MAX_VALUE;
+        }
+
+        int[] lowX = new int[newWidth];
+        int[] highX = new int[newWidth];
+        float[] fractionX = new float[newWidth];
+        float xRatio = (float) imageWidth / newWidth;
+        for (int x = 0; x < newWidth; ++x) {
+            float sourceX = StrictMath.min(StrictMath.max((x + .5f) * xRatio - .5f, 0), imageWidth - 1);
+            lowX[x] = (int) sourceX;
+            highX[x] = StrictMath.min(lowX[x] + 1, imageWidth - 1);
+            fractionX[x] = sourceX - lowX[x];
+        }
+
+        float yRatio = (float) imageHeight / newHeight;
+        int bandCount = (newHeight + IMAGE_BAND_HEIGHT - 1) / IMAGE_BAND_HEIGHT;
+        IntStream.range(0, bandCount).parallel().forEach(band -> {
+            float[][] topRows = new float[numBands][imageWidth];
+            float[][] bottomRows = new float[numBands][imageWidth];
+            float[][] newRows = new float[numBands][newWidth];
+            int topY = -1;
+            int bottomY = -1;
+            int lastY = StrictMath.min((band + 1) * IMAGE_BAND_HEIGHT, newHeight);
+            for (int y = band * IMAGE_BAND_HEIGHT; y < lastY; ++y) {
+                float sourceY = StrictMath.min(StrictMath.max((y + .5f) * yRatio - .5f, 0), imageHeight - 1);
+                int lowY = (int) sourceY;
+                int highY = StrictMath.min(lowY + 1, imageHeight - 1);
+                float fractionY = sourceY - lowY;
+                if (topY != lowY) {
+                    if (bottomY == lowY) {
+                        float[][] swap = topRows;
+                        topRows = bottomRows;
+                        bottomRows = swap;
+                        bottomY = -1;
+                    } else {
+                        getRowSamples(imageRaster, lowY, topRows);
+                    }
+                    topY = lowY;
+                }
+                if (bottomY != highY) {
+                    getRowSamples(imageRaster, highY, bottomRows);
+                    bottomY = highY;
+                }
+
+                for (int b = 0; b < numBands; ++b) {
+                    float[] topRow = topRows[b];
+                    float[] bottomRow = bottomRows[b];
+                    float[] newRow = newRows[b];
+                    float maxValue = maxValues[b];
+                    for (int x = 0; x < newWidth; ++x) {
+                        int left = lowX[x];
+                        int right = highX[x];
+                        float top = topRow[left] + (topRow[right] - topRow[left]) * fractionX[x];
+                        float bottom = bottomRow[left] + (bottomRow[right] - bottomRow[left]) * fractionX[x];
+                        float value = (top + (bottom - top) * fractionY) * valueScale;
+                        if (integral) {
+                            value = value < 0 ? 0 : value > maxValue ? maxValue : (int) (value + .5f);
+                        }
+                        newRow[x] = value;
+                    }
                 }
+                setRowSamples(newImageRaster, y, newRows);
+            }
+        });
+        return newImage;
+    }
+
+    /**
+     * Reads one row of the raster into one array per band. Packed int rasters, like ARGB images, are unpacked
+     * straight from their buffer as going through the sample model band by band is several times slower
+     */
+    private static void getRowSamples(Raster raster, int y, float[][] rows) {
+        int width = raster.getWidth();
+        if (raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel
+            && raster.getDataBuffer() instanceof DataBufferInt dataBuffer) {
+            int[] data = dataBuffer.getData();
+            int[] bitMasks = sampleModel.getBitMasks();
+            int[] bitOffsets = sampleModel.getBitOffsets();
+            int start = dataBuffer.getOffset() + sampleModel.getOffset(
+                    raster.getMinX() - raster.getSampleModelTranslateX(), y - raster.getSampleModelTranslateY());
+            for (int b = 0; b < rows.length; ++b) {
+                float[] row = rows[b];
+                int bitMask = bitMasks[b];
+                int bitOffset = bitOffsets[b];
+                for (int x = 0; x < width; ++x) {
+                    row[x] = (data[start + x] & bitMask) >>> bitOffset;
+                }
+            }
+        } else {
+            for (int b = 0; b < rows.length; ++b) {
+                raster.getSamples(raster.getMinX(), y, width, 1, b, rows[b]);
+            }
+        }
+    }
+
+    private static void setRowSamples(WritableRaster raster, int y, float[][] rows) {
+        int width = raster.getWidth();
+        if (raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel
+            && raster.getDataBuffer() instanceof DataBufferInt dataBuffer) {
+            int[] data = dataBuffer.getData();
+            int[] bitMasks = sampleModel.getBitMasks();
+            int[] bitOffsets = sampleModel.getBitOffsets();
+            int start = dataBuffer.getOffset() + sampleModel.getOffset(
+                    raster.getMinX() - raster.getSampleModelTranslateX(), y - raster.getSampleModelTranslateY());
+            for (int x = 0; x < width; ++x) {
+                int pixel = 0;
+                for (int b = 0; b < rows.length; ++b) {
+                    pixel |= ((int) rows[b][x] << bitOffsets[b]) & bitMasks[b];
+                }
+                data[start + x] = pixel;
+            }
+        } else {
+            for (int b = 0; b < rows.length; ++b) {
+                raster.setSamples(raster.getMinX(), y, width, 1, b, rows[b]);
             }
         }
+    }
+
+    public static BufferedImage insertImageIntoNewImageOfSize(BufferedImage image, int width, int height,
+                                                              Vector2 locToInsertTopLeft) {
+        BufferedImage newImage = createCompatibleImage(image, width, height);
+        WritableRaster newImageRaster = newImage.getRaster();
+        Raster imageRaster = image.getRaster();
+        int offsetX = (int) locToInsertTopLeft.getX();
+        int offsetY = (int) locToInsertTopLeft.getY();
+        int imageHeight = imageRaster.getHeight();
+        int bandCount = (imageHeight + IMAGE_BAND_HEIGHT - 1) / IMAGE_BAND_HEIGHT;
+        IntStream.range(0, bandCount).parallel().forEach(band -> {
+            int minY = band * IMAGE_BAND_HEIGHT;
+            int bandHeight = StrictMath.min(IMAGE_BAND_HEIGHT, imageHeight - minY);
+            newImageRaster.setRect(offsetX, offsetY,
+                                   imageRaster.createChild(0, minY, imageRaster.getWidth(), bandHeight, 0, minY, null));
+        });
         return newImage;
     }
 
+    private static BufferedImage createCompatibleImage(BufferedImage image, int width, int height) {
+        ColorModel colorModel = image.getColorModel();
+        return new BufferedImage(colorModel, colorModel.createCompatibleWritableRaster(width, height),
+                                 colorModel.isAlphaPremultiplied(), null);
+    }
+
     public static boolean inImageBounds(int x, int y, BufferedImage image) {
         return x >= 0 && x < image.getWidth() && y >= 0 && y < image.getHeight();
     }
@@ -1,6 +1,7 @@
 package com.faforever.neroxis.util;
 
 import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.lib.jse.JsePlatform;
 
@@ -10,8 +11,12 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public final class LuaLoader {
+    private static final Queue<Globals> ENVIRONMENTS = new ConcurrentLinkedQueue<>();
+
     private LuaLoader() {
         throw new AssertionError("Not instantiatable");
     }
@@ -22,10 +27,25 @@ public final class LuaLoader {
         }
     }
 
+    /**
+     * Runs the script in a fresh environment that falls back to a pooled {@link Globals} for the standard and faf
+     * functions, so the globals are only built once per concurrent caller and no script sees the values of another
+     *
+     * @return the environment holding the globals set by the script
+     */
     public static LuaValue load(InputStream inputStream) throws IOException {
-        Globals globals = buildEnvironment();
-        globals.load(inputStream, "@" + inputStream.hashCode(), "bt", globals).invoke();
-        return globals;
+        Globals globals = ENVIRONMENTS.poll();
+        if (globals == null) {
+            globals = buildEnvironment();
+        }
+        try {
+            LuaTable environment = new LuaTable();
+            environment.setmetatable(LuaValue.tableOf(new LuaValue[]{LuaValue.INDEX, globals}));
+            globals.load(inputStream, "@" + inputStream.hashCode(), "bt", environment).invoke();
+            return environment;
+        } finally {
+            ENVIRONMENTS.offer(globals);
+        }
     }
 
     private static Globals buildEnvironment() throws IOException {
@@ -0,0 +1,230 @@
+package com.faforever.neroxis.util;
+
+import com.faforever.neroxis.util.functional.ToFloatFunction;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Static 2D k-d tree over a list of items supporting removal and (k-)nearest queries.
+ * Items are referred to by their index in the source list. Distances are computed exactly like
+ * {@link com.faforever.neroxis.util.vector.Vector3#getXZDistance} and ties are resolved in favour of the lowest index,
+ * so results match a linear scan over the remaining items in list order
+ */
+public class NearestNeighborIndex<T> {
+    private static final double PRUNE_TOLERANCE = 1e-5;
+    private final List<T> items;
+    private final float[] xs;
+    private final float[] ys;
+    private final int[] tree;
+    private final int[] treePositions;
+    private final int[] aliveInSubtree;
+    private final boolean[] removed;
+    private int size;
+
+    public NearestNeighborIndex(List<T> items, ToFloatFunction<? super T> xFunction,
+                                ToFloatFunction<? super T> yFunction) {
+        this.items = items;
+        size = items.size();
+        xs = new float[size];
+        ys = new float[size];
+        tree = new int[size];
+        treePositions = new int[size];
+        aliveInSubtree = new int[size];
+        removed = new boolean[size];
+        for (int i = 0; i < size; ++i) {
+            T item = items.get(i);
+            xs[i] = xFunction.apply(item);
+            ys[i] = yFunction.apply(item);
+            tree[i] = i;
+        }
+        build(0, size, 0);
+    }
+
+    public static float getDistance(float x1, float y1, float x2, float y2) {
+        float dx = x1 - x2;
+        float dy = y1 - y2;
+        return (float) StrictMath.sqrt(dx * dx + dy * dy);
+    }
+
+    private void build(int low, int high, int depth) {
+        if (low >= high) {
+            return;
+        }
+        int middle = (low + high) >>> 1;
+        select(low, high - 1, middle, depth & 1);
+        treePositions[tree[middle]] = middle;
+        aliveInSubtree[middle] = high - low;
+        build(low, middle, depth + 1);
+        build(middle + 1, high, depth + 1);
+    }
+
+    private float getCoordinate(int index, int axis) {
+        return axis == 0 ? xs[index] : ys[index];
+    }
+
+    /**
+     * Partially orders tree[left..right] so the element at position target is the one that would be there if the
+     * range was sorted on the axis
+     */
+    private void select(int left, int right, int target, int axis) {
+        while (left < right) {
+            float pivot = getCoordinate(tree[(left + right) >>> 1], axis);
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (getCoordinate(tree[i], axis) < pivot) {
+                    i++;
+                }
+                while (getCoordinate(tree[j], axis) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = tree[i];
+                    tree[i] = tree[j];
+                    tree[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (target <= j) {
+                right = j;
+            } else if (target >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    public T get(int index) {
+        return items.get(index);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isRemoved(int index) {
+        return removed[index];
+    }
+
+    public void remove(int index) {
+        if (removed[index]) {
+            throw new IllegalStateException(String.format("Index %d already removed", index));
+        }
+        removed[index] = true;
+        size--;
+        int position = treePositions[index];
+        int low = 0;
+        int high = tree.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            aliveInSubtree[middle]--;
+            if (position == middle) {
+                return;
+            } else if (position < middle) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the remaining item closest to the given point, or -1 if there is none
+     */
+    public int nearest(float x, float y) {
+        return nearest(x, y, Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Returns the index of the remaining item closest to the given point whose distance is strictly less than the
+     * max distance, or -1 if there is none
+     */
+    public int nearest(float x, float y, float maxDistance) {
+        int[] result = nearest(x, y, 1, maxDistance);
+        return result.length == 0 ? -1 : result[0];
+    }
+
+    /**
+     * Returns the indices of up to k remaining items closest to the given point whose distance is strictly less than
+     * the max distance, ordered by distance
+     */
+    public int[] nearest(float x, float y, int k, float maxDistance) {
+        if (k < 1) {
+            throw new IllegalArgumentException(String.format("k must be positive: %d", k));
+        }
+        Neighbors neighbors = new Neighbors(k, maxDistance);
+        search(0, tree.length, 0, x, y, neighbors);
+        return Arrays.copyOf(neighbors.indices, neighbors.count);
+    }
+
+    private void search(int low, int high, int depth, float x, float y, Neighbors neighbors) {
+        if (low >= high) {
+            return;
+        }
+        int middle = (low + high) >>> 1;
+        if (aliveInSubtree[middle] == 0) {
+            return;
+        }
+        int index = tree[middle];
+        if (!removed[index]) {
+            neighbors.offer(index, getDistance(xs[index], ys[index], x, y));
+        }
+
+        double delta = (depth & 1) == 0 ? (double) x - xs[index] : (double) y - ys[index];
+        if (delta < 0) {
+            search(low, middle, depth + 1, x, y, neighbors);
+            if (-delta * (1 - PRUNE_TOLERANCE) <= neighbors.getBound()) {
+                search(middle + 1, high, depth + 1, x, y, neighbors);
+            }
+        } else {
+            search(middle + 1, high, depth + 1, x, y, neighbors);
+            if (delta * (1 - PRUNE_TOLERANCE) <= neighbors.getBound()) {
+                search(low, middle, depth + 1, x, y, neighbors);
+            }
+        }
+    }
+
+    private static class Neighbors {
+        private final int[] indices;
+        private final float[] distances;
+        private final float maxDistance;
+        private int count;
+
+        private Neighbors(int k, float maxDistance) {
+            this.maxDistance = maxDistance;
+            indices = new int[k];
+            distances = new float[k];
+        }
+
+        private float getBound() {
+            return count == indices.length ? distances[count - 1] : maxDistance;
+        }
+
+        private void offer(int index, float distance) {
+            if (!(distance < maxDistance)) {
+                return;
+            }
+            int position = count;
+            while (position > 0 && (distances[position - 1] > distance
+                                    || (distances[position - 1] == distance && indices[position - 1] > index))) {
+                position--;
+            }
+            if (position == indices.length) {
+                return;
+            }
+            int end = StrictMath.min(count, indices.length - 1);
+            System.arraycopy(indices, position, indices, position + 1, end - position);
+            System.arraycopy(distances, position, distances, position + 1, end - position);
+            indices[position] = index;
+            distances[position] = distance;
+            count = StrictMath.min(count + 1, indices.length);
+        }
+    }
+}
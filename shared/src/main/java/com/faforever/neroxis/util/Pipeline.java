@@ -9,109 +9,284 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+/**
+ * Schedules the operations on parallel masks. The static methods act on the pipeline bound to the calling thread,
+ * which is a single process wide pipeline unless a separate one was bound with {@link #bind(Pipeline, Runnable)}.
+ * All pipelines share one executor so concurrently generated maps compete for the same cores.
+ * <p>
+ * Ready entries are dispatched longest remaining path first, so the chains that bound the total run time get a
+ * thread before cheap side branches. The cost of an entry is the time per pixel the same operation, a mask method
+ * called from the same line, took the last time it ran, or its pixel count if it never ran. Costs only affect the
+ * order in which ready entries start, never their results.
+ * <p>
+ * A pipeline started with dead entry elimination only treats an entry as live once a result that depends on it is
+ * awaited. Entries that are not live yet run speculatively when no live work is waiting, and the ones that are still
+ * pending when the pipeline is joined are skipped until a mask depending on them is awaited. The result of an entry is
+ * released once all its dependants ran.
+ * <p>
+ * A {@link FusibleFunction} added right after another one for the same mask is merged into the previous entry
+ * instead of becoming a new one, so chains of element wise operations run as a single entry. The method and line of
+ * every merged operation are appended to the ones of the entry, while its cost history stays keyed by the first.
+ * <p>
+ * While most of the heap is still in use after garbage collection, large results that are waiting for other masks to
+ * read them are moved to a shared {@link SpillFile} and read back when the first dependant starts. Masks that have no
+ * entries left are spilled the same way and read back when they are awaited or used again.
+ * <p>
+ * An entry that throws fails its own pipeline only, waiting for any of its masks rethrows the error.
+ */
 public class Pipeline {
-    private static final List<Entry> pipeline = new ArrayList<>();
-    private static final ExecutorService executorService = Executors.newFixedThreadPool(
-            Runtime.getRuntime().availableProcessors());
+    private static final ExecutorService executorService = new ThreadPoolExecutor(
+            Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors(), 0L,
+            TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>());
+    private static final String MASK_PACKAGE = "com.faforever.neroxis.mask";
+    private static final int MAX_COST_HISTORY_SIZE = 4096;
+    private static final Map<String, Float> COST_PER_PIXEL_HISTORY = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, .75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Float> eldest) {
+                    return size() > MAX_COST_HISTORY_SIZE;
+                }
+            });
+    private static final Pipeline DEFAULT_PIPELINE = new Pipeline();
+    private static final ThreadLocal<Pipeline> BOUND_PIPELINE = new ThreadLocal<>();
+    private static final float SPILL_HEAP_FRACTION = .75f;
+    private static final long MIN_SPILL_BYTES = 16L << 20;
+    private static SpillFile spillFile;
     public static boolean HASH_MASK = false;
-    private static CompletableFuture<List<Mask<?, ?>>> started = new CompletableFuture<>();
-    private static String[] hashArray;
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<Mask<?, ?>, Entry> latestEntries = new HashMap<>();
+    private CompletableFuture<List<Mask<?, ?>>> started = new CompletableFuture<>();
+    private String[] hashArray;
+    private volatile boolean eliminateDeadEntries;
+    private volatile boolean joined;
+    private volatile int run;
+    private volatile Throwable failure;
+
+    private static Pipeline current() {
+        Pipeline boundPipeline = BOUND_PIPELINE.get();
+        return boundPipeline == null ? DEFAULT_PIPELINE : boundPipeline;
+    }
+
+    /**
+     * Returns a runnable that runs the given one with the pipeline bound to the running thread
+     */
+    public static Runnable bind(Pipeline pipeline, Runnable runnable) {
+        return () -> {
+            Pipeline previousPipeline = BOUND_PIPELINE.get();
+            BOUND_PIPELINE.set(pipeline);
+            try {
+                runnable.run();
+            } finally {
+                if (previousPipeline == null) {
+                    BOUND_PIPELINE.remove();
+                } else {
+                    BOUND_PIPELINE.set(previousPipeline);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a runnable that runs the given one with the pipeline of the calling thread bound to the running thread.
+     * Work handed to other threads during generation has to be bound so it keeps using the right pipeline
+     */
+    public static Runnable bind(Runnable runnable) {
+        return bind(current(), runnable);
+    }
 
     public static void reset() {
-        started = new CompletableFuture<>();
-        pipeline.clear();
+        Pipeline pipeline = current();
+        pipeline.entries.forEach(Entry::discardSpilledResult);
+        pipeline.started = new CompletableFuture<>();
+        pipeline.entries.clear();
+        pipeline.latestEntries.clear();
+        pipeline.joined = false;
+        pipeline.failure = null;
+        pipeline.run++;
+    }
+
+    private static synchronized SpillFile getSpillFile() {
+        if (spillFile == null) {
+            spillFile = new SpillFile();
+        }
+        return spillFile;
+    }
+
+    /**
+     * Spills the mask if it is large and most of the heap was still in use after the latest garbage collection. The
+     * pooled scratch arrays are dropped first as they would otherwise keep counting as used
+     */
+    private static void spillIfLowOnMemory(Mask<?, ?> mask) {
+        if (!HeapMonitor.isAbove(SPILL_HEAP_FRACTION) || mask.getSpillBytes() < MIN_SPILL_BYTES) {
+            return;
+        }
+        ScratchArrays.clearAll();
+        mask.spill(getSpillFile());
     }
 
     public static void add(Mask<?, ?> executingMask, List<Mask<?, ?>> maskDependencies,
                            Consumer<List<Mask<?, ?>>> function) {
-        int index = pipeline.size();
+        Pipeline pipeline = current();
+        int index = pipeline.entries.size();
         if (isRunning()) {
             throw new UnsupportedOperationException("Mask added after pipeline started");
         }
-        String callingMethod = null;
-        String callingLine = null;
+        String[] callSite = getCallSite();
+        String callingMethod = callSite[0];
+        String callingLine = callSite[1];
+
+        if (pipeline.fuseWithLastEntry(executingMask, maskDependencies, function, callingMethod, callingLine)) {
+            return;
+        }
+
+        // Masks spilled by an earlier pipeline have no entry here that would read them back
+        if (!pipeline.latestEntries.containsKey(executingMask)) {
+            executingMask.unspill();
+        }
+        maskDependencies.stream().filter(mask -> !pipeline.latestEntries.containsKey(mask)).forEach(Mask::unspill);
+
+        List<Entry> entryDependencies = pipeline.getLatestEntries(maskDependencies, executingMask);
+        Entry entry = new Entry(pipeline, index, executingMask, entryDependencies, function, callingMethod,
+                                callingLine);
+
+        entry.dependencies.forEach(entry::addDependency);
+        pipeline.entries.add(entry);
+        pipeline.latestEntries.put(executingMask, entry);
+    }
+
+    /**
+     * Returns the outermost mask method on the stack and the line it was called from in a single walk
+     */
+    private static String[] getCallSite() {
+        return StackWalker.getInstance().walk(stackFrameStream -> {
+            String[] callSite = {"not found", "not found"};
+            boolean previousInPackage = false;
+            for (StackWalker.StackFrame stackFrame : (Iterable<StackWalker.StackFrame>) stackFrameStream::iterator) {
+                boolean inPackage = stackFrame.getClassName().startsWith(MASK_PACKAGE);
+                if (inPackage) {
+                    callSite[0] = stackFrame.getMethodName();
+                } else if (previousInPackage) {
+                    callSite[1] = stackFrame.getFileName() + ":" + stackFrame.getLineNumber();
+                }
+                previousInPackage = inPackage;
+            }
+            return callSite;
+        });
+    }
+
+    private boolean fuseWithLastEntry(Mask<?, ?> executingMask, List<Mask<?, ?>> maskDependencies,
+                                      Consumer<List<Mask<?, ?>>> function, String callingMethod,
+                                      String callingLine) {
+        if (!(function instanceof FusibleFunction) || entries.isEmpty()) {
+            return false;
+        }
+        Entry lastEntry = entries.get(entries.size() - 1);
+        if (lastEntry.executingMask != executingMask || !(lastEntry.function instanceof FusibleFunction lastFunction)) {
+            return false;
+        }
+        List<Entry> entryDependencies = new ArrayList<>(maskDependencies.size());
+        for (Mask<?, ?> maskDependency : maskDependencies) {
+            Entry latestEntry = latestEntries.get(maskDependency);
+            if (maskDependency == executingMask || latestEntry == null) {
+                return false;
+            }
+            entryDependencies.add(latestEntry);
+        }
+        if (!lastFunction.fuse((FusibleFunction) function, lastEntry.dependencyList.size())) {
+            return false;
+        }
+        lastEntry.dependencyList.addAll(entryDependencies);
+        entryDependencies.stream().filter(lastEntry.dependencies::add).forEach(lastEntry::addDependency);
+        lastEntry.methodName += ", " + callingMethod;
+        lastEntry.line += ", " + callingLine;
+        return true;
+    }
 
+    private void execute(Entry entry, Consumer<List<Mask<?, ?>>> function, List<Mask<?, ?>> dependencies) {
+        int index = entry.getIndex();
+        Mask<?, ?> executingMask = entry.getExecutingMask();
+        String callingMethod = entry.getMethodName();
+        String callingLine = entry.getLine();
+        long startNanos = System.nanoTime();
+        boolean visualDebug = executingMask.isVisualDebug();
+        executingMask.setVisualDebug(false);
+        executingMask.unspill();
+        function.accept(dependencies);
+        entry.getDependencies().forEach(Entry::releaseIfConsumed);
+        long functionNanos = System.nanoTime() - startNanos;
+        COST_PER_PIXEL_HISTORY.put(entry.operationKey, (float) functionNanos / entry.getPixelCount());
+        long functionTime = functionNanos / 1_000_000;
+        long startTime = System.currentTimeMillis();
+        if (HASH_MASK) {
+            hashArray[index] = String.format("%s,\t%s,\t%s,\t%s%n", executingMask.toHash(), callingLine,
+                                             executingMask.getName(), callingMethod);
+        }
+        long hashTime = System.currentTimeMillis() - startTime;
         if (DebugUtil.DEBUG) {
-            callingMethod = DebugUtil.getLastStackTraceMethodInPackage("com.faforever.neroxis.mask");
-            callingLine = DebugUtil.getLastStackTraceLineAfterPackage("com.faforever.neroxis.mask");
-        }
-
-        List<Entry> entryDependencies = Pipeline.getDependencyList(maskDependencies, executingMask);
-        String finalCallingLine = callingLine;
-        String finalCallingMethod = callingMethod;
-        CompletableFuture<Void> newFuture = Pipeline.getDependencyFuture(entryDependencies)
-                                                    .thenAcceptAsync(dependencies -> {
-                                                        long startTime = System.currentTimeMillis();
-                                                        boolean visualDebug = executingMask.isVisualDebug();
-                                                        executingMask.setVisualDebug(false);
-                                                        function.accept(dependencies);
-                                                        long functionTime = System.currentTimeMillis() - startTime;
-                                                        startTime = System.currentTimeMillis();
-                                                        if (HASH_MASK) {
-                                                            try {
-                                                                hashArray[index] = String.format("%s,\t%s,\t%s,\t%s%n",
-                                                                                                 executingMask.toHash(),
-                                                                                                 finalCallingLine,
-                                                                                                 executingMask.getName(),
-                                                                                                 finalCallingMethod);
-                                                            } catch (NoSuchAlgorithmException e) {
-                                                                System.err.println("Cannot hash mask");
-                                                            }
-                                                        }
-                                                        long hashTime = System.currentTimeMillis() - startTime;
-                                                        if (DebugUtil.DEBUG) {
-                                                            System.out.printf(
-                                                                    "Entry Done: function time %4d ms; hash time %4d ms; %s(%d); %s  -> %s\n",
-                                                                    functionTime, hashTime, executingMask.getName(),
-                                                                    index, finalCallingLine, finalCallingMethod);
-                                                        }
-                                                        executingMask.setVisualDebug(visualDebug);
-                                                        if ((DebugUtil.DEBUG && visualDebug) || (DebugUtil.VISUALIZE
-                                                                                                 &&
-                                                                                                 !executingMask.isMock())) {
-                                                            VisualDebugger.visualizeMask(executingMask,
-                                                                                         finalCallingMethod,
-                                                                                         finalCallingLine);
-                                                        }
-                                                    }, executorService);
-
-        Entry entry = new Entry(index, executingMask, entryDependencies, newFuture, callingMethod, callingLine);
-
-        entry.dependencies.forEach(dependency -> dependency.dependants.add(entry));
-        pipeline.add(entry);
+            System.out.printf("Entry Done: function time %4d ms; hash time %4d ms; %s(%d); %s  -> %s\n", functionTime,
+                              hashTime, executingMask.getName(), index, callingLine, callingMethod);
+        }
+        executingMask.setVisualDebug(visualDebug);
+        if ((DebugUtil.DEBUG && visualDebug) || (DebugUtil.VISUALIZE && !executingMask.isMock())) {
+            VisualDebugger.visualizeMask(executingMask, callingMethod, callingLine);
+        }
     }
 
     public static boolean isRunning() {
-        return started.isDone();
+        return current().started.isDone();
     }
 
     public static List<Entry> getDependencyList(List<Mask<?, ?>> requiredMasks, Mask<?, ?> executingMask) {
-        requiredMasks = new ArrayList<>(requiredMasks);
-        if (!requiredMasks.contains(executingMask)) {
-            requiredMasks.add(executingMask);
-        }
-        return getDependencyList(requiredMasks);
+        return current().getLatestEntries(requiredMasks, executingMask);
     }
 
     public static List<Entry> getDependencyList(List<Mask<?, ?>> requiredMasks) {
-        List<Entry> dependencies = new ArrayList<>();
+        return current().getLatestEntries(requiredMasks, null);
+    }
 
+    /**
+     * Returns the latest entry of each required mask followed by the one of the executing mask, if it is not
+     * required already and not null
+     */
+    private List<Entry> getLatestEntries(List<Mask<?, ?>> requiredMasks, Mask<?, ?> executingMask) {
+        List<Entry> dependencies = new ArrayList<>(requiredMasks.size() + 1);
+        boolean executingMaskRequired = executingMask == null;
         for (Mask<?, ?> requiredMask : requiredMasks) {
-            getMostRecentEntryForMask(requiredMask).ifPresent(dependencies::add);
+            executingMaskRequired |= requiredMask == executingMask;
+            Entry latestEntry = latestEntries.get(requiredMask);
+            if (latestEntry != null) {
+                dependencies.add(latestEntry);
+            }
+        }
+        if (!executingMaskRequired) {
+            Entry latestEntry = latestEntries.get(executingMask);
+            if (latestEntry != null) {
+                dependencies.add(latestEntry);
+            }
         }
         return dependencies;
     }
@@ -122,8 +297,8 @@ public class Pipeline {
      * @param dependencyList list of dependencies
      * @return future that completes when all dependent futures are completed
      */
-    private static CompletableFuture<List<Mask<?, ?>>> getDependencyFuture(List<Entry> dependencyList) {
-        if (pipeline.isEmpty() || dependencyList.isEmpty()) {
+    private CompletableFuture<List<Mask<?, ?>>> getDependencyFuture(List<Entry> dependencyList, Executor executor) {
+        if (entries.isEmpty() || dependencyList.isEmpty()) {
             return started;
         }
 
@@ -138,44 +313,104 @@ public class Pipeline {
         return CompletableFuture.allOf(futures)
                                 .thenApplyAsync(aVoid -> dependencyList.stream()
                                                                        .map(Entry::getResult)
-                                                                       .collect(Collectors.toList()), executorService);
+                                                                       .collect(Collectors.toList()), executor);
     }
 
     public static Optional<Entry> getMostRecentEntryForMask(Mask<?, ?> mask) {
-        return pipeline.stream()
-                       .filter(entry -> mask.equals(entry.getExecutingMask()))
-                       .reduce((first, second) -> second);
+        return Optional.ofNullable(current().latestEntries.get(mask));
     }
 
     public static void start() {
+        start(false);
+    }
+
+    /**
+     * Starts running the pipeline
+     *
+     * @param eliminateDeadEntries whether to skip the entries no awaited mask depends on. Fingerprinting the masks
+     *                             needs every entry so all entries run while {@link #HASH_MASK} is set
+     */
+    public static void start(boolean eliminateDeadEntries) {
         System.out.println("Starting pipeline");
-        hashArray = new String[getPipelineSize()];
+        Pipeline pipeline = current();
+        pipeline.hashArray = new String[getPipelineSize()];
+        pipeline.eliminateDeadEntries = eliminateDeadEntries && !HASH_MASK;
+        pipeline.computeRemainingPathCosts();
+        pipeline.entries.forEach(entry -> {
+            entry.unconsumedDependants.set(entry.getDependants().size());
+            entry.live = !pipeline.eliminateDeadEntries;
+            entry.schedule();
+        });
 
         if (DebugUtil.DEBUG) {
-            pipeline.forEach(entry -> System.out.printf(
+            pipeline.entries.forEach(entry -> System.out.printf(
                     "Pipeline entry: %s;\tdependencies:[%s];\tdependants:[%s];\texecuteMask %s;\tLine: %s;\t Method: %s\n",
                     entry.toString(),
                     entry.getDependencies().stream().map(Entry::toString).collect(Collectors.joining(", ")),
                     entry.getDependants().stream().map(Entry::toString).collect(Collectors.joining(", ")),
                     entry.getExecutingMask().getName(), entry.getLine(), entry.getMethodName()));
         }
-        started.complete(null);
+        pipeline.started.complete(null);
+    }
+
+    /**
+     * Entries only depend on earlier entries so walking backwards visits every dependant before its dependencies
+     */
+    private void computeRemainingPathCosts() {
+        for (int i = entries.size() - 1; i >= 0; --i) {
+            Entry entry = entries.get(i);
+            double longestDependantPath = 0;
+            for (Entry dependant : entry.getDependants()) {
+                longestDependantPath = StrictMath.max(longestDependantPath, dependant.remainingPathCost);
+            }
+            entry.remainingPathCost = entry.getCost() + longestDependantPath;
+        }
     }
 
     public static int getPipelineSize() {
-        return pipeline.size();
+        return current().entries.size();
     }
 
     public static void join() {
-        pipeline.forEach(e -> e.getFuture().join());
-        System.out.println("Pipeline completed!");
+        Pipeline pipeline = current();
+        pipeline.joined = true;
+        List<Entry> liveEntries = pipeline.entries.stream().filter(Entry::isLive).toList();
+        liveEntries.forEach(e -> e.getFuture().join());
+        if (liveEntries.size() < pipeline.entries.size()) {
+            System.out.printf("Pipeline completed! Skipped %d dead entries%n",
+                              pipeline.entries.size() - liveEntries.size());
+        } else {
+            System.out.println("Pipeline completed!");
+        }
     }
 
     public static void await(Mask<?, ?>... masks) {
         if (!isRunning()) {
             throw new IllegalStateException("Pipeline not started cannot await");
         }
-        getDependencyList(Arrays.asList(masks)).forEach(e -> e.getFuture().join());
+        List<Entry> awaitedEntries = getDependencyList(Arrays.asList(masks));
+        demand(awaitedEntries);
+        awaitedEntries.forEach(e -> e.getFuture().join());
+        Arrays.stream(masks).forEach(Mask::unspill);
+    }
+
+    /**
+     * Marks the entries and everything they depend on as live
+     */
+    private static void demand(List<Entry> demandedEntries) {
+        Deque<Entry> toVisit = new ArrayDeque<>(demandedEntries);
+        while (!toVisit.isEmpty()) {
+            Entry entry = toVisit.pop();
+            if (entry.live) {
+                continue;
+            }
+            entry.live = true;
+            PrioritizedTask pendingTask = entry.pendingTask;
+            if (pendingTask != null) {
+                pendingTask.resubmitIfSpeculative();
+            }
+            toVisit.addAll(entry.getDependencies());
+        }
     }
 
     public static void toFile(Path path) throws IOException {
@@ -183,7 +418,7 @@ public class Pipeline {
         File outFile = path.toFile();
         boolean status = outFile.createNewFile();
         FileOutputStream out = new FileOutputStream(outFile);
-        for (String s : hashArray) {
+        for (String s : current().hashArray) {
             if (s != null) {
                 out.write(s.getBytes());
             }
@@ -193,7 +428,22 @@ public class Pipeline {
     }
 
     public static String[] getHashArray() {
-        return hashArray.clone();
+        return current().hashArray.clone();
+    }
+
+    /**
+     * Fails every entry of the pipeline with the first error so waiting for any of its masks throws, pending entries
+     * are skipped and the other pipelines sharing the executor keep running
+     */
+    private synchronized void fail(Throwable throwable, int failedRun) {
+        if (failure != null || run != failedRun) {
+            return;
+        }
+        failure = throwable instanceof CompletionException && throwable.getCause() != null
+                  ? throwable.getCause()
+                  : throwable;
+        failure.printStackTrace();
+        entries.forEach(entry -> entry.future.completeExceptionally(failure));
     }
 
     public static void shutdown() {
@@ -208,44 +458,190 @@ public class Pipeline {
     public static class Entry {
         private final Mask<?, ?> executingMask;
         private final Set<Entry> dependencies = new HashSet<>();
-        private final CompletableFuture<Void> future;
-        private final Set<Entry> dependants = new HashSet<>();
+        private final List<Entry> dependencyList;
+        private final Consumer<List<Mask<?, ?>>> function;
+        private final List<Entry> dependants = new ArrayList<>();
         private final int index;
-        private final String methodName;
-        private final String line;
-        private Mask<?, ?> immutableResult;
+        private final String operationKey;
+        private String methodName;
+        private String line;
+        private final long pixelCount;
+        private final double cost;
+        private final AtomicInteger unconsumedDependants = new AtomicInteger();
+        private final Pipeline pipeline;
+        private final int run;
+        private double remainingPathCost;
+        private boolean readByOtherMasks;
+        private volatile boolean live;
+        private volatile PrioritizedTask pendingTask;
+        private volatile Mask<?, ?> immutableResult;
+        private CompletableFuture<Void> future;
 
-        public Entry(int index, Mask<?, ?> executingMask, Collection<Entry> dependencies,
-                     CompletableFuture<Void> future, String method, String line) {
+        public Entry(Pipeline pipeline, int index, Mask<?, ?> executingMask, List<Entry> dependencies,
+                     Consumer<List<Mask<?, ?>>> function, String method, String line) {
+            this.pipeline = pipeline;
+            this.run = pipeline.run;
             this.index = index;
             this.executingMask = executingMask;
             this.dependencies.addAll(dependencies);
+            this.dependencyList = new ArrayList<>(dependencies);
+            this.function = function;
             this.methodName = method;
             this.line = line;
-            this.future = future.thenRunAsync(() -> {
-                if (!executingMask.isMock() && dependants.stream()
-                                                         .anyMatch(entry -> !entry.getExecutingMask()
-                                                                                  .equals(executingMask))) {
-                    immutableResult = executingMask.immutableCopy();
+            operationKey = method + "@" + line;
+            pixelCount = StrictMath.max((long) executingMask.getSize() * executingMask.getSize(), 1);
+            cost = pixelCount * COST_PER_PIXEL_HISTORY.getOrDefault(operationKey, 1f);
+        }
+
+        private void addDependency(Entry dependency) {
+            dependency.dependants.add(this);
+            if (dependency.executingMask != executingMask) {
+                dependency.readByOtherMasks = true;
+            }
+        }
+
+        /**
+         * Chains the entry onto its dependencies. Called in order when the pipeline starts as entries can still be
+         * fused with later operations until then
+         */
+        private void schedule() {
+            Executor executor = runnable -> new PrioritizedTask(this, runnable).submit();
+            future = pipeline.getDependencyFuture(dependencyList, executor).thenAcceptAsync(
+                    dependencyResults -> bind(pipeline, () -> pipeline.execute(this, function, dependencyResults)).run(),
+                    executor).thenRunAsync(bind(pipeline, () -> {
+                if (!executingMask.isMock() && readByOtherMasks) {
+                    Mask<?, ?> copy = executingMask.immutableCopy();
+                    spillIfLowOnMemory(copy);
+                    immutableResult = copy;
                 } else {
                     immutableResult = executingMask;
                 }
-            }).exceptionally(throwable -> {
-                throwable.printStackTrace();
-                shutdown();
-                return null;
+                // Only awaiting the mask or a later pipeline touches it again, generators keep such masks until
+                // they write the map
+                if (!executingMask.isMock() && pipeline.latestEntries.get(executingMask) == this) {
+                    spillIfLowOnMemory(executingMask);
+                }
+            }), executor);
+            future.whenComplete((ignored, throwable) -> {
+                if (throwable != null) {
+                    pipeline.fail(throwable, run);
+                }
             });
         }
 
         public Mask<?, ?> getResult() {
-            if (!future.isDone()) {
+            if (future == null || !future.isDone()) {
                 throw new IllegalStateException("Entry not done computing");
             }
-            return immutableResult;
+            Mask<?, ?> result = immutableResult;
+            if (result != null) {
+                result.unspill();
+            }
+            return result;
         }
 
         public String toString() {
             return String.format("%s(%d)", executingMask.getName(), index);
         }
+
+        private boolean isCancelled() {
+            return pipeline.failure != null && pipeline.run == run;
+        }
+
+        private boolean isDead() {
+            return !live && (pipeline.joined || pipeline.run != run);
+        }
+
+        private void releaseIfConsumed() {
+            if (unconsumedDependants.decrementAndGet() == 0) {
+                discardSpilledResult();
+                immutableResult = null;
+            }
+        }
+
+        private void discardSpilledResult() {
+            Mask<?, ?> result = immutableResult;
+            if (result != null && result != executingMask) {
+                result.discardSpill();
+            }
+        }
+    }
+
+    /**
+     * An entry function that the function of a following operation on the same mask can be merged into while the
+     * pipeline is set up
+     */
+    public interface FusibleFunction extends Consumer<List<Mask<?, ?>>> {
+        /**
+         * Merges the next function into this one
+         *
+         * @param next             function of the following operation
+         * @param dependencyOffset position of the first dependency of the next function in the list this function
+         *                         is called with, its dependencies follow in order
+         * @return whether the function was merged
+         */
+        boolean fuse(FusibleFunction next, int dependencyOffset);
+    }
+
+    /**
+     * A stage of an entry waiting for a thread. A stage queued speculatively is queued again once its entry turns
+     * live and runs from whichever queue position is reached first
+     */
+    private static class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        private final Entry entry;
+        private final Runnable runnable;
+        private final boolean live;
+        private final AtomicBoolean claimed;
+
+        private PrioritizedTask(Entry entry, Runnable runnable) {
+            this(entry, runnable, entry.live, new AtomicBoolean());
+        }
+
+        private PrioritizedTask(Entry entry, Runnable runnable, boolean live, AtomicBoolean claimed) {
+            this.entry = entry;
+            this.runnable = runnable;
+            this.live = live;
+            this.claimed = claimed;
+        }
+
+        private void submit() {
+            entry.pendingTask = this;
+            executorService.execute(this);
+            // The entry may have turned live before this task was visible to the demanding thread
+            resubmitIfSpeculative();
+        }
+
+        private void resubmitIfSpeculative() {
+            if (!live && entry.live && !claimed.get()) {
+                executorService.execute(new PrioritizedTask(entry, runnable, true, claimed));
+            }
+        }
+
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            if (entry.isCancelled()) {
+                return;
+            }
+            if (entry.isDead()) {
+                // Unclaimed so demanding the entry after the join can still run it, the entry may have turned live
+                // before the claim was released in which case the demanding thread did not queue it again
+                claimed.set(false);
+                resubmitIfSpeculative();
+                return;
+            }
+            runnable.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            if (live != other.live) {
+                return live ? -1 : 1;
+            }
+            int comparison = Double.compare(other.entry.remainingPathCost, entry.remainingPathCost);
+            return comparison != 0 ? comparison : Integer.compare(entry.index, other.entry.index);
+        }
     }
 }
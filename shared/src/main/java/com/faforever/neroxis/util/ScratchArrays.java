@@ -0,0 +1,109 @@
+package com.faforever.neroxis.util;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Per thread pool of primitive scratch arrays for mask operations, keyed by type and length. Borrowed arrays keep
+ * whatever contents they were released with so callers have to overwrite or clear them. Pooled arrays are only
+ * softly referenced so the pools of idle threads never hold on to memory the heap needs. A thread keeps at most one
+ * grid per size as grids take as much memory as a whole mask. Soft references still count as used heap until the
+ * heap is nearly full, so the pools of all threads can also be dropped on purpose when memory runs low
+ */
+public final class ScratchArrays {
+    private static final int MAX_POOLED_PER_LENGTH = 4;
+    private static final int MAX_POOLED_GRIDS_PER_SIZE = 1;
+    private static final ThreadLocal<ScratchArrays> ARENA = ThreadLocal.withInitial(ScratchArrays::new);
+    private static volatile int clearCount;
+    private final Map<Class<?>, Map<Integer, Deque<SoftReference<Object>>>> pools = new HashMap<>();
+    private int seenClearCount = clearCount;
+
+    private ScratchArrays() {}
+
+    /**
+     * Drops the pooled arrays of every thread, each thread drops its own the next time it borrows or releases one
+     */
+    public static void clearAll() {
+        clearCount++;
+    }
+
+    public static long[] borrowLongs(int length) {
+        return ARENA.get().take(long[].class, length, long[]::new);
+    }
+
+    public static float[] borrowFloats(int length) {
+        return ARENA.get().take(float[].class, length, float[]::new);
+    }
+
+    public static int[] borrowInts(int length) {
+        return ARENA.get().take(int[].class, length, int[]::new);
+    }
+
+    /**
+     * Borrows a square grid of {@code size} rows of {@code size} ints
+     */
+    public static int[][] borrowIntGrid(int size) {
+        return ARENA.get().take(int[][].class, size, length -> new int[length][length]);
+    }
+
+    /**
+     * Borrows a square grid of {@code size} rows of {@code size} floats
+     */
+    public static float[][] borrowFloatGrid(int size) {
+        return ARENA.get().take(float[][].class, size, length -> new float[length][length]);
+    }
+
+    public static void release(long[] array) {
+        ARENA.get().give(long[].class, array.length, array, MAX_POOLED_PER_LENGTH);
+    }
+
+    public static void release(float[] array) {
+        ARENA.get().give(float[].class, array.length, array, MAX_POOLED_PER_LENGTH);
+    }
+
+    public static void release(int[] array) {
+        ARENA.get().give(int[].class, array.length, array, MAX_POOLED_PER_LENGTH);
+    }
+
+    public static void release(int[][] grid) {
+        ARENA.get().give(int[][].class, grid.length, grid, MAX_POOLED_GRIDS_PER_SIZE);
+    }
+
+    public static void release(float[][] grid) {
+        ARENA.get().give(float[][].class, grid.length, grid, MAX_POOLED_GRIDS_PER_SIZE);
+    }
+
+    private <A> A take(Class<A> type, int length, IntFunction<A> allocator) {
+        clearIfRequested();
+        Deque<SoftReference<Object>> pool = pools.computeIfAbsent(type, key -> new HashMap<>()).get(length);
+        while (pool != null && !pool.isEmpty()) {
+            Object array = pool.pop().get();
+            if (array != null) {
+                return type.cast(array);
+            }
+        }
+        return allocator.apply(length);
+    }
+
+    private void give(Class<?> type, int length, Object array, int maxPooled) {
+        clearIfRequested();
+        Deque<SoftReference<Object>> pool = pools.computeIfAbsent(type, key -> new HashMap<>())
+                                                 .computeIfAbsent(length, key -> new ArrayDeque<>());
+        pool.removeIf(reference -> reference.get() == null);
+        if (pool.size() < maxPooled) {
+            pool.push(new SoftReference<>(array));
+        }
+    }
+
+    private void clearIfRequested() {
+        int currentClearCount = clearCount;
+        if (seenClearCount != currentClearCount) {
+            pools.clear();
+            seenClearCount = currentClearCount;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.faforever.neroxis.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Temp file that mask contents are moved to while they are not needed. Contents are written to and read from memory
+ * mapped regions of the file, so the operating system pages them in and out instead of the heap holding them. Freed
+ * regions are reused by later contents of the same size
+ */
+public class SpillFile {
+    private final FileChannel channel;
+    private final Map<Long, Deque<Long>> freePositions = new HashMap<>();
+    private long end;
+
+    public SpillFile() {
+        try {
+            Path path = Files.createTempFile("neroxis_spill", ".bin");
+            path.toFile().deleteOnExit();
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                       StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create spill file", e);
+        }
+    }
+
+    public synchronized Region allocate(long size) {
+        Deque<Long> positions = freePositions.get(size);
+        if (positions != null && !positions.isEmpty()) {
+            return new Region(positions.pop(), size);
+        }
+        Region region = new Region(end, size);
+        end += size;
+        return region;
+    }
+
+    public synchronized void free(Region region) {
+        freePositions.computeIfAbsent(region.size(), size -> new ArrayDeque<>()).push(region.position());
+    }
+
+    /**
+     * Maps the region in native byte order
+     */
+    public ByteBuffer map(Region region) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, region.position(), region.size())
+                          .order(ByteOrder.nativeOrder());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map spill file region", e);
+        }
+    }
+
+    public record Region(long position, long size) {}
+}
@@ -0,0 +1,149 @@
+package com.faforever.neroxis.util;
+
+/**
+ * Streaming xxHash64 over primitive values. Values are consumed as their little-endian byte representation so
+ * the digest matches xxHash64 of the equivalent byte stream without ever materializing that stream
+ */
+public class XxHash64 {
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+    private static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME_5 = 0x27D4EB2F165667C5L;
+    private static final long INT_MASK = 0xFFFFFFFFL;
+
+    private final long seed;
+    private final long[] stripe = new long[4];
+    private long accumulator1;
+    private long accumulator2;
+    private long accumulator3;
+    private long accumulator4;
+    private int laneCount;
+    private int pendingInt;
+    private boolean hasPendingInt;
+    private long totalLength;
+
+    public XxHash64() {
+        this(0);
+    }
+
+    public XxHash64(long seed) {
+        this.seed = seed;
+        accumulator1 = seed + PRIME_1 + PRIME_2;
+        accumulator2 = seed + PRIME_2;
+        accumulator3 = seed;
+        accumulator4 = seed - PRIME_1;
+    }
+
+    private static long round(long accumulator, long lane) {
+        accumulator += lane * PRIME_2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME_1;
+    }
+
+    private static long mergeRound(long hash, long accumulator) {
+        hash ^= round(0, accumulator);
+        return hash * PRIME_1 + PRIME_4;
+    }
+
+    public XxHash64 update(long value) {
+        totalLength += Long.BYTES;
+        if (hasPendingInt) {
+            pushLane((pendingInt & INT_MASK) | (value << 32));
+            pendingInt = (int) (value >>> 32);
+        } else {
+            pushLane(value);
+        }
+        return this;
+    }
+
+    public XxHash64 update(int value) {
+        totalLength += Integer.BYTES;
+        if (hasPendingInt) {
+            pushLane((pendingInt & INT_MASK) | ((long) value << 32));
+            hasPendingInt = false;
+        } else {
+            pendingInt = value;
+            hasPendingInt = true;
+        }
+        return this;
+    }
+
+    public XxHash64 update(float value) {
+        return update(Float.floatToRawIntBits(value));
+    }
+
+    public XxHash64 update(int[] values) {
+        for (int value : values) {
+            update(value);
+        }
+        return this;
+    }
+
+    public XxHash64 update(float[] values) {
+        for (float value : values) {
+            update(Float.floatToRawIntBits(value));
+        }
+        return this;
+    }
+
+    public XxHash64 update(long[] values, int from, int to) {
+        for (int i = from; i < to; ++i) {
+            update(values[i]);
+        }
+        return this;
+    }
+
+    private void pushLane(long lane) {
+        stripe[laneCount++] = lane;
+        if (laneCount == stripe.length) {
+            accumulator1 = round(accumulator1, stripe[0]);
+            accumulator2 = round(accumulator2, stripe[1]);
+            accumulator3 = round(accumulator3, stripe[2]);
+            accumulator4 = round(accumulator4, stripe[3]);
+            laneCount = 0;
+        }
+    }
+
+    /**
+     * Returns the digest of everything consumed so far. The hasher can keep consuming values afterwards
+     */
+    public long getValue() {
+        long hash;
+        if (totalLength >= 32) {
+            hash = Long.rotateLeft(accumulator1, 1)
+                   + Long.rotateLeft(accumulator2, 7)
+                   + Long.rotateLeft(accumulator3, 12)
+                   + Long.rotateLeft(accumulator4, 18);
+            hash = mergeRound(hash, accumulator1);
+            hash = mergeRound(hash, accumulator2);
+            hash = mergeRound(hash, accumulator3);
+            hash = mergeRound(hash, accumulator4);
+        } else {
+            hash = seed + PRIME_5;
+        }
+
+        hash += totalLength;
+
+        for (int i = 0; i < laneCount; ++i) {
+            hash ^= round(0, stripe[i]);
+            hash = Long.rotateLeft(hash, 27) * PRIME_1 + PRIME_4;
+        }
+
+        if (hasPendingInt) {
+            hash ^= (pendingInt & INT_MASK) * PRIME_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME_2 + PRIME_3;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    public String toHexString() {
+        return String.format("%016x", getValue());
+    }
+}
@@ -0,0 +1,6 @@
+package com.faforever.neroxis.util.functional;
+
+@FunctionalInterface
+public interface QuadIntConsumer {
+    void accept(int i, int j, int k, int l);
+}
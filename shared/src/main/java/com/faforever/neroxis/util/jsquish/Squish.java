@@ -41,9 +41,11 @@ public final class Squish {
 
     // TODO: Add interface for ByteBuffers
     // TODO: Allow concurrent calls: Un-static everything, create basic compressors once, objectify alpha compressors (DXT3 & DXT5 implementations)
-    public static byte[] compressImage(final byte[] rgba, final int width, final int height, byte[] blocks,
-                                       final CompressionType type, final CompressionMethod method,
-                                       final CompressionMetric metric, final boolean weightAlpha) {
+    // Until then calls are serialized as the compressors share static scratch state
+    public static synchronized byte[] compressImage(final byte[] rgba, final int width, final int height,
+                                                    byte[] blocks, final CompressionType type,
+                                                    final CompressionMethod method, final CompressionMetric metric,
+                                                    final boolean weightAlpha) {
         blocks = checkCompressInput(rgba, width, height, blocks, type);
 
         final byte[] sourceRGBA = new byte[64];
@@ -145,8 +147,8 @@ public final class Squish {
         return compressImage(rgba, width, height, blocks, type, method, CompressionMetric.PERCEPTUAL, false);
     }
 
-    public static byte[] decompressImage(byte[] rgba, final int width, final int height, final byte[] blocks,
-                                         final CompressionType type) {
+    public static synchronized byte[] decompressImage(byte[] rgba, final int width, final int height,
+                                                      final byte[] blocks, final CompressionType type) {
         rgba = checkDecompressInput(rgba, width, height, blocks, type);
 
         final byte[] targetRGBA = new byte[64];
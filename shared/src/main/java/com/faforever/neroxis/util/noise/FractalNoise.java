@@ -0,0 +1,69 @@
+package com.faforever.neroxis.util.noise;
+
+import lombok.Getter;
+
+/**
+ * Fractal brownian motion built by summing octaves of a {@link GradientNoise}
+ */
+@Getter
+public class FractalNoise {
+    private static final float WARP_OFFSET_X = 5.2f;
+    private static final float WARP_OFFSET_Y = 1.3f;
+    private final GradientNoise noise;
+    private final int octaves;
+    private final float lacunarity;
+    private final float gain;
+    private final float amplitudeSum;
+
+    /**
+     * @param noise      base noise sampled for every octave
+     * @param octaves    number of octaves to sum
+     * @param lacunarity frequency multiplier between octaves
+     * @param gain       amplitude multiplier between octaves
+     */
+    public FractalNoise(GradientNoise noise, int octaves, float lacunarity, float gain) {
+        if (octaves < 1) {
+            throw new IllegalArgumentException("Fractal noise requires at least one octave");
+        }
+        this.noise = noise;
+        this.octaves = octaves;
+        this.lacunarity = lacunarity;
+        this.gain = gain;
+        float amplitude = 1f;
+        float sum = 0f;
+        for (int i = 0; i < octaves; ++i) {
+            sum += amplitude;
+            amplitude *= gain;
+        }
+        amplitudeSum = sum;
+    }
+
+    /**
+     * Sample the fractal noise at the given location
+     *
+     * @return noise value in the range [-1, 1]
+     */
+    public float getValue(float x, float y) {
+        float frequency = 1f;
+        float amplitude = 1f;
+        float value = 0f;
+        for (int i = 0; i < octaves; ++i) {
+            value += noise.getValue(x * frequency, y * frequency) * amplitude;
+            frequency *= lacunarity;
+            amplitude *= gain;
+        }
+        return value / amplitudeSum;
+    }
+
+    /**
+     * Sample the fractal noise after displacing the location by the noise itself
+     *
+     * @param warpStrength distance in noise units that the location can be displaced by
+     * @return noise value in the range [-1, 1]
+     */
+    public float getWarpedValue(float x, float y, float warpStrength) {
+        float warpX = getValue(x, y);
+        float warpY = getValue(x + WARP_OFFSET_X, y + WARP_OFFSET_Y);
+        return getValue(x + warpStrength * warpX, y + warpStrength * warpY);
+    }
+}
@@ -0,0 +1,50 @@
+package com.faforever.neroxis.util.noise;
+
+import java.util.Random;
+
+/**
+ * Base class for lattice gradient noise. The permutation table is computed once from the seed so sampling
+ * only performs primitive arithmetic and table lookups and can be shared across threads
+ */
+public abstract class GradientNoise {
+    private static final int TABLE_SIZE = 256;
+    private static final int TABLE_MASK = TABLE_SIZE - 1;
+    private static final float[] GRADIENTS_X = {1, -1, 1, -1, 1, -1, 0, 0};
+    private static final float[] GRADIENTS_Y = {1, 1, -1, -1, 0, 0, 1, -1};
+    private final int[] permutation = new int[TABLE_SIZE * 2];
+
+    protected GradientNoise(long seed) {
+        Random random = new Random(seed);
+        for (int i = 0; i < TABLE_SIZE; ++i) {
+            permutation[i] = i;
+        }
+        for (int i = TABLE_SIZE - 1; i > 0; --i) {
+            int j = random.nextInt(i + 1);
+            int swap = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = swap;
+        }
+        System.arraycopy(permutation, 0, permutation, TABLE_SIZE, TABLE_SIZE);
+    }
+
+    protected static int fastFloor(float value) {
+        int truncated = (int) value;
+        return value < truncated ? truncated - 1 : truncated;
+    }
+
+    /**
+     * Sample the noise at the given location
+     *
+     * @return noise value in the range [-1, 1]
+     */
+    public abstract float getValue(float x, float y);
+
+    protected int hash(int x, int y) {
+        return permutation[permutation[x & TABLE_MASK] + (y & TABLE_MASK)];
+    }
+
+    protected float gradientDot(int hash, float x, float y) {
+        int gradient = hash & 7;
+        return GRADIENTS_X[gradient] * x + GRADIENTS_Y[gradient] * y;
+    }
+}
@@ -0,0 +1,39 @@
+package com.faforever.neroxis.util.noise;
+
+public class SimplexNoise extends GradientNoise {
+    private static final float SKEW = (float) (0.5 * (StrictMath.sqrt(3) - 1));
+    private static final float UNSKEW = (float) ((3 - StrictMath.sqrt(3)) / 6);
+    private static final float NORMALIZATION = 70f;
+
+    public SimplexNoise(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public float getValue(float x, float y) {
+        float skew = (x + y) * SKEW;
+        int i = fastFloor(x + skew);
+        int j = fastFloor(y + skew);
+        float unskew = (i + j) * UNSKEW;
+        float x0 = x - (i - unskew);
+        float y0 = y - (j - unskew);
+        int iOffset = x0 > y0 ? 1 : 0;
+        int jOffset = x0 > y0 ? 0 : 1;
+        float x1 = x0 - iOffset + UNSKEW;
+        float y1 = y0 - jOffset + UNSKEW;
+        float x2 = x0 - 1f + 2f * UNSKEW;
+        float y2 = y0 - 1f + 2f * UNSKEW;
+        return NORMALIZATION * (getCornerContribution(hash(i, j), x0, y0)
+                                + getCornerContribution(hash(i + iOffset, j + jOffset), x1, y1)
+                                + getCornerContribution(hash(i + 1, j + 1), x2, y2));
+    }
+
+    private float getCornerContribution(int hash, float x, float y) {
+        float t = .5f - x * x - y * y;
+        if (t < 0) {
+            return 0;
+        }
+        t *= t;
+        return t * t * gradientDot(hash, x, y);
+    }
+}
@@ -0,0 +1,102 @@
+package com.faforever.neroxis.mask;
+
+import com.faforever.neroxis.map.Symmetry;
+import com.faforever.neroxis.map.SymmetrySettings;
+import com.faforever.neroxis.util.Pipeline;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class ElementWiseFusionTest {
+    private static final SymmetrySettings SYMMETRY_SETTINGS = new SymmetrySettings(Symmetry.NONE);
+    private static final int OPERATION_COUNT = 9;
+
+    @ParameterizedTest
+    @ValueSource(ints = {64, 100})
+    public void TestFusedFloatChainMatchesUnfused(int size) {
+        FloatMask unfused = applyFloatChain(size, false);
+        Pipeline.bind(new Pipeline(), () -> {
+            FloatMask fused = applyFloatChain(size, true);
+            assertTrue(Pipeline.getPipelineSize() < OPERATION_COUNT);
+            Pipeline.start();
+            FloatMask result = fused.getFinalMask();
+            for (int x = 0; x < size; ++x) {
+                for (int y = 0; y < size; ++y) {
+                    assertEquals(unfused.get(x, y), result.get(x, y), String.format("%d, %d", x, y));
+                }
+            }
+        }).run();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {64, 100})
+    public void TestFusedBooleanChainMatchesUnfused(int size) {
+        BooleanMask unfused = applyBooleanChain(size, false);
+        Pipeline.bind(new Pipeline(), () -> {
+            BooleanMask fused = applyBooleanChain(size, true);
+            assertTrue(Pipeline.getPipelineSize() < OPERATION_COUNT);
+            Pipeline.start();
+            BooleanMask result = fused.getFinalMask();
+            for (int x = 0; x < size; ++x) {
+                for (int y = 0; y < size; ++y) {
+                    assertEquals(unfused.get(x, y), result.get(x, y), String.format("%d, %d", x, y));
+                }
+            }
+        }).run();
+    }
+
+    /**
+     * Applies {@link #OPERATION_COUNT} operations, reading the mask itself part way through so the chain is split
+     */
+    private FloatMask applyFloatChain(int size, boolean parallel) {
+        FloatMask mask = new FloatMask(size, 0L, SYMMETRY_SETTINGS, "mask", parallel);
+        FloatMask other = new FloatMask(size, 0L, SYMMETRY_SETTINGS, "other", parallel);
+        FloatMask divisor = new FloatMask(size, 0L, SYMMETRY_SETTINGS, "divisor", parallel);
+        mask.set((x, y) -> getNoise(x, y, 0));
+        other.set((x, y) -> getNoise(x, y, 1));
+        divisor.set((x, y) -> 1 + getNoise(x, y, 2));
+        return mask.add(other)
+                   .multiply(2f)
+                   .subtract(.5f)
+                   .clampMin(.25f)
+                   .divide(divisor)
+                   .add(mask)
+                   .clampMax(2f)
+                   .multiply(other)
+                   .subtract(divisor);
+    }
+
+    /**
+     * Applies {@link #OPERATION_COUNT} operations, reading the mask itself part way through so the chain is split
+     */
+    private BooleanMask applyBooleanChain(int size, boolean parallel) {
+        BooleanMask mask = new BooleanMask(size, 0L, SYMMETRY_SETTINGS, "mask", parallel);
+        BooleanMask other = new BooleanMask(size, 0L, SYMMETRY_SETTINGS, "other", parallel);
+        BooleanMask values = new BooleanMask(size, 0L, SYMMETRY_SETTINGS, "values", parallel);
+        mask.set((x, y) -> getNoise(x, y, 0) < .5f);
+        other.set((x, y) -> getNoise(x, y, 1) < .3f);
+        values.set((x, y) -> getNoise(x, y, 2) < .6f);
+        return mask.invert()
+                   .add(other)
+                   .subtract(other, values)
+                   .multiply(values)
+                   .add(mask)
+                   .invert()
+                   .divide(other, true)
+                   .add(other, values)
+                   .subtract(values);
+    }
+
+    private float getNoise(int x, int y, int channel) {
+        int hash = x * 73_856_093 ^ y * 19_349_663 ^ channel * 83_492_791;
+        hash ^= hash >>> 13;
+        hash *= 0x5bd1e995;
+        hash ^= hash >>> 15;
+        return (hash & 0xffff) / 65536f;
+    }
+}
@@ -0,0 +1,79 @@
+package com.faforever.neroxis.mask;
+
+import com.faforever.neroxis.map.Symmetry;
+import com.faforever.neroxis.map.SymmetrySettings;
+import com.faforever.neroxis.util.SpillFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class MaskSpillTest {
+    private static final int SIZE = 100;
+    private static final SymmetrySettings SYMMETRY_SETTINGS = new SymmetrySettings(Symmetry.NONE);
+
+    @Test
+    public void TestFloatMaskRoundTrip() {
+        FloatMask mask = new FloatMask(SIZE, 0L, SYMMETRY_SETTINGS, "float", false);
+        mask.set((x, y) -> x * 1.5f - y / 3f);
+        assertRoundTrip(mask);
+    }
+
+    @Test
+    public void TestIntegerMaskRoundTrip() {
+        IntegerMask mask = new IntegerMask(SIZE, 0L, SYMMETRY_SETTINGS, "integer", false);
+        mask.set((x, y) -> x * 7 - y * 13);
+        assertRoundTrip(mask);
+    }
+
+    @Test
+    public void TestBooleanMaskRoundTrip() {
+        BooleanMask mask = new BooleanMask(SIZE, 0L, SYMMETRY_SETTINGS, "boolean", false);
+        mask.set((x, y) -> (x * 31 + y * 17) % 5 < 2);
+        assertRoundTrip(mask);
+    }
+
+    @Test
+    public void TestVectorMasksRoundTrip() {
+        assertRoundTrip(new Vector2Mask(SIZE, 0L, SYMMETRY_SETTINGS, "vector2", false).randomize(1f));
+        assertRoundTrip(new Vector3Mask(SIZE, 0L, SYMMETRY_SETTINGS, "vector3", false).randomize(1f));
+    }
+
+    @Test
+    public void TestSpilledMaskIsReadBackWhenUsed() {
+        FloatMask mask = new FloatMask(SIZE, 0L, SYMMETRY_SETTINGS, "float", false);
+        mask.set((x, y) -> (float) x);
+        FloatMask other = new FloatMask(SIZE, 0L, SYMMETRY_SETTINGS, "other", false);
+        other.set((x, y) -> (float) y);
+        SpillFile spillFile = new SpillFile();
+        assertTrue(mask.spill(spillFile));
+        assertTrue(other.spill(spillFile));
+
+        mask.add(other);
+        assertFalse(mask.isSpilled());
+        assertFalse(other.isSpilled());
+        assertEquals(5f, mask.get(2, 3));
+    }
+
+    private void assertRoundTrip(Mask<?, ?> mask) {
+        String hash = mask.toHash();
+        SpillFile spillFile = new SpillFile();
+        assertTrue(mask.spill(spillFile));
+        assertTrue(mask.isSpilled());
+        assertFalse(mask.spill(spillFile));
+        assertEquals(SIZE, mask.getSize());
+
+        mask.unspill();
+        assertFalse(mask.isSpilled());
+        assertEquals(hash, mask.toHash());
+
+        // The freed region is reused and read back the same way
+        assertTrue(mask.spill(spillFile));
+        mask.unspill();
+        assertEquals(hash, mask.toHash());
+    }
+}
@@ -0,0 +1,139 @@
+package com.faforever.neroxis.mask;
+
+import com.faforever.neroxis.map.Symmetry;
+import com.faforever.neroxis.map.SymmetrySettings;
+import com.faforever.neroxis.map.SymmetryType;
+import com.faforever.neroxis.util.vector.Vector2;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class SpacedCandidatesTest {
+    private static final int SIZE = 96;
+    private static final SymmetrySettings SYMMETRY_SETTINGS = new SymmetrySettings(Symmetry.POINT2);
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 1, 2, 3, 4, 5, 6, 7})
+    public void TestRandomCoordinatesMatchListAlgorithm(long seed) {
+        Random random = new Random(seed);
+        boolean[][] values = createValues(random);
+        float minSpacing = 1 + random.nextInt(12);
+        float maxSpacing = minSpacing + random.nextFloat() * 4;
+
+        List<Vector2> expected = getRandomCoordinatesFromList(createMask(values, seed), minSpacing, maxSpacing);
+        assertEquals(expected, createMask(values, seed).getRandomCoordinates(minSpacing, maxSpacing));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 1, 2, 3, 4, 5, 6, 7})
+    public void TestRandomCoordinatesFromCandidatesMatchListAlgorithm(long seed) {
+        Random random = new Random(seed);
+        boolean[][] values = createValues(random);
+        float spacing = 1 + random.nextInt(12);
+
+        List<Vector2> expected = getRandomCoordinatesFromList(createMask(values, seed), spacing, spacing);
+        BooleanMask mask = createMask(values, null);
+        assertEquals(expected, mask.getRandomCoordinates(mask.getSpacedCandidates(spacing), spacing,
+                                                         new Random(seed)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 1, 2, 3, 4, 5, 6, 7})
+    public void TestSpacedCoordinatesMatchListAlgorithm(long seed) {
+        Random random = new Random(seed);
+        boolean[][] values = createValues(random);
+        float radius = 1 + random.nextFloat() * 12;
+        int spacing = 1 + random.nextInt(3);
+        BooleanMask mask = createMask(values, seed);
+
+        List<Vector2> coordinates = mask.getAllCoordinatesEqualTo(true, spacing);
+        List<Vector2> expected = new ArrayList<>();
+        while (!coordinates.isEmpty()) {
+            Vector2 location = coordinates.remove(0);
+            expected.add(location);
+            coordinates.removeIf(other -> location.getDistance(other) < radius);
+        }
+        assertEquals(expected, mask.getSpacedCoordinatesEqualTo(true, radius, spacing));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 1, 2, 3, 4, 5, 6, 7})
+    public void TestCirclesMatchFilledMasks(long seed) {
+        Random random = new Random(seed);
+        boolean[][] values = createValues(random);
+        BooleanMask mask = createMask(values, null);
+        BooleanMask removedMask = createMask(values, null);
+        SpacedCandidates candidates = mask.getSpacedCandidates(random.nextInt(16));
+        for (int i = 0; i < 12; ++i) {
+            // Half points and radii land pixels exactly on the circle edge
+            float x = random.nextInt(2 * SIZE) / 2f;
+            float y = random.nextInt(2 * SIZE) / 2f;
+            float radius = random.nextInt(40) / 2f;
+            BooleanMask selectedMask = removedMask.copy().multiply(
+                    new BooleanMask(SIZE, null, SYMMETRY_SETTINGS).fillCircle(x, y, radius, true));
+            assertMatches(selectedMask, candidates.selectCircle(x, y, radius));
+
+            removedMask.fillCircle(x, y, radius, false);
+            candidates.removeCircle(x, y, radius);
+            assertMatches(removedMask, candidates);
+        }
+
+        mask.limitToCandidates(candidates);
+        assertMatches(mask, candidates);
+        assertEquals(candidates.getRemainingCount(), mask.getCount());
+    }
+
+    private List<Vector2> getRandomCoordinatesFromList(BooleanMask mask, float minSpacing, float maxSpacing) {
+        List<Vector2> coordinates = mask.copy().limitToSymmetryRegion().getAllCoordinatesEqualTo(true);
+        Random random = mask.random;
+        List<Vector2> chosenCoordinates = new ArrayList<>();
+        while (!coordinates.isEmpty()) {
+            Vector2 location = coordinates.remove(random.nextInt(coordinates.size()));
+            float spacing = random.nextFloat() * (maxSpacing - minSpacing) + minSpacing;
+            chosenCoordinates.add(location);
+            coordinates.removeIf(other -> location.getDistance(other) < spacing);
+            for (Vector2 symmetryPoint : mask.getSymmetryPoints(location, SymmetryType.TEAM)) {
+                coordinates.removeIf(other -> symmetryPoint.getDistance(other) < spacing);
+            }
+        }
+        return chosenCoordinates;
+    }
+
+    private void assertMatches(BooleanMask expected, SpacedCandidates candidates) {
+        BooleanMask teamRegion = expected.copy().limitToSymmetryRegion();
+        int count = 0;
+        for (int x = 0; x < SIZE; ++x) {
+            for (int y = 0; y < SIZE; ++y) {
+                assertEquals(teamRegion.getPrimitive(x, y), candidates.isRemaining(x, y),
+                             String.format("%d, %d", x, y));
+                count += teamRegion.getPrimitive(x, y) ? 1 : 0;
+            }
+        }
+        assertEquals(count, candidates.getRemainingCount());
+    }
+
+    private boolean[][] createValues(Random random) {
+        float density = random.nextFloat();
+        boolean[][] values = new boolean[SIZE][SIZE];
+        for (int x = 0; x < SIZE; ++x) {
+            for (int y = 0; y < SIZE; ++y) {
+                values[x][y] = random.nextFloat() < density;
+            }
+        }
+        return values;
+    }
+
+    private BooleanMask createMask(boolean[][] values, Long seed) {
+        BooleanMask mask = new BooleanMask(SIZE, seed, SYMMETRY_SETTINGS);
+        mask.set((x, y) -> values[x][y]);
+        return mask;
+    }
+}
@@ -0,0 +1,138 @@
+package com.faforever.neroxis.util;
+
+import com.faforever.neroxis.util.vector.Vector3;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class NearestNeighborIndexTest {
+    private static final int QUERY_COUNT = 200;
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 1, 2, 3, 4})
+    public void TestMatchesLinearScanOnGrid(long seed) {
+        // Integer coordinates on a small grid give many equal distances and duplicate points
+        Random random = new Random(seed);
+        List<Vector3> points = new ArrayList<>();
+        for (int i = 0; i < 500; ++i) {
+            points.add(new Vector3(random.nextInt(16), 0, random.nextInt(16)));
+        }
+        assertMatchesLinearScan(points, random, 16);
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 1, 2, 3, 4})
+    public void TestMatchesLinearScanOnScatteredPoints(long seed) {
+        Random random = new Random(seed);
+        List<Vector3> points = new ArrayList<>();
+        for (int i = 0; i < 500; ++i) {
+            points.add(new Vector3(random.nextFloat() * 1024, 0, random.nextFloat() * 1024));
+        }
+        assertMatchesLinearScan(points, random, 1024);
+    }
+
+    @Test
+    public void TestTiesResolveToLowestIndex() {
+        List<Vector3> points = List.of(new Vector3(2, 0, 0), new Vector3(0, 0, 2), new Vector3(-2, 0, 0),
+                                       new Vector3(0, 0, -2), new Vector3(2, 0, 0));
+        NearestNeighborIndex<Vector3> index = createIndex(points);
+        assertEquals(0, index.nearest(0, 0));
+        assertArrayEquals(new int[]{0, 1, 2}, index.nearest(0, 0, 3, Float.POSITIVE_INFINITY));
+        index.remove(0);
+        assertEquals(1, index.nearest(0, 0));
+        assertEquals(4, index.nearest(2, 0));
+    }
+
+    @Test
+    public void TestMaxDistanceIsExclusive() {
+        List<Vector3> points = List.of(new Vector3(3, 0, 4), new Vector3(6, 0, 8));
+        NearestNeighborIndex<Vector3> index = createIndex(points);
+        assertEquals(-1, index.nearest(0, 0, 5));
+        assertEquals(0, index.nearest(0, 0, 5.0001f));
+        assertArrayEquals(new int[]{0}, index.nearest(0, 0, 2, 10));
+        assertArrayEquals(new int[]{0, 1}, index.nearest(0, 0, 2, 10.0001f));
+    }
+
+    @Test
+    public void TestRemoveAll() {
+        List<Vector3> points = List.of(new Vector3(1, 0, 1), new Vector3(2, 0, 2), new Vector3(3, 0, 3));
+        NearestNeighborIndex<Vector3> index = createIndex(points);
+        index.remove(1);
+        index.remove(0);
+        index.remove(2);
+        assertTrue(index.isEmpty());
+        assertEquals(-1, index.nearest(2, 2));
+        assertEquals(0, index.nearest(2, 2, 3, Float.POSITIVE_INFINITY).length);
+        assertThrows(IllegalStateException.class, () -> index.remove(1));
+    }
+
+    @Test
+    public void TestEmptyIndex() {
+        NearestNeighborIndex<Vector3> index = createIndex(List.of());
+        assertTrue(index.isEmpty());
+        assertEquals(-1, index.nearest(0, 0));
+    }
+
+    private void assertMatchesLinearScan(List<Vector3> points, Random random, float extent) {
+        NearestNeighborIndex<Vector3> index = createIndex(points);
+        boolean[] removed = new boolean[points.size()];
+        for (int query = 0; query < QUERY_COUNT; ++query) {
+            float x = random.nextBoolean() ? random.nextInt((int) extent) : random.nextFloat() * extent;
+            float y = random.nextBoolean() ? random.nextInt((int) extent) : random.nextFloat() * extent;
+            float maxDistance = random.nextBoolean() ? Float.POSITIVE_INFINITY : random.nextInt((int) extent / 4 + 1);
+            int k = 1 + random.nextInt(8);
+
+            int[] expected = nearestByLinearScan(points, removed, x, y, k, maxDistance);
+            String message = String.format("Query %d at %f, %f with k %d and max distance %f", query, x, y, k,
+                                           maxDistance);
+            assertArrayEquals(expected, index.nearest(x, y, k, maxDistance), message);
+            assertEquals(expected.length == 0 ? -1 : expected[0], index.nearest(x, y, maxDistance), message);
+
+            for (int removal = random.nextInt(4); removal > 0 && !index.isEmpty(); --removal) {
+                int toRemove = random.nextInt(points.size());
+                while (removed[toRemove]) {
+                    toRemove = (toRemove + 1) % points.size();
+                }
+                removed[toRemove] = true;
+                index.remove(toRemove);
+                assertTrue(index.isRemoved(toRemove));
+            }
+        }
+        assertEquals(IntStream.range(0, points.size()).filter(i -> !removed[i]).count(), index.size());
+    }
+
+    private int[] nearestByLinearScan(List<Vector3> points, boolean[] removed, float x, float y, int k,
+                                      float maxDistance) {
+        return IntStream.range(0, points.size())
+                        .filter(i -> !removed[i])
+                        .filter(i -> getDistance(points.get(i), x, y) < maxDistance)
+                        .boxed()
+                        .sorted(Comparator.<Integer>comparingDouble(i -> getDistance(points.get(i), x, y))
+                                          .thenComparingInt(i -> i))
+                        .limit(k)
+                        .mapToInt(Integer::intValue)
+                        .toArray();
+    }
+
+    private float getDistance(Vector3 point, float x, float y) {
+        return point.getXZDistance(new Vector3(x, 0, y));
+    }
+
+    private NearestNeighborIndex<Vector3> createIndex(List<Vector3> points) {
+        return new NearestNeighborIndex<>(points, Vector3::getX, Vector3::getZ);
+    }
+}
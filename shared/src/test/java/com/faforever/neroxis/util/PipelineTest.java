@@ -0,0 +1,72 @@
+package com.faforever.neroxis.util;
+
+import com.faforever.neroxis.map.Symmetry;
+import com.faforever.neroxis.map.SymmetrySettings;
+import com.faforever.neroxis.mask.FloatMask;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class PipelineTest {
+    private static final int SIZE = 64;
+    private static final int CHAIN_LENGTH = 20;
+    private static final SymmetrySettings SYMMETRY_SETTINGS = new SymmetrySettings(Symmetry.NONE);
+
+    @Test
+    public void TestFailureOnlyFailsItsOwnPipeline() {
+        Pipeline.bind(new Pipeline(), () -> {
+            FloatMask failing = new FloatMask(SIZE, 0L, SYMMETRY_SETTINGS, "failing", true);
+            failing.apply((x, y) -> {
+                throw new IllegalStateException("Failing on purpose");
+            });
+            FloatMask dependant = new FloatMask(SIZE, 0L, SYMMETRY_SETTINGS, "dependant", true).add(failing);
+            Pipeline.start();
+            CompletionException exception = assertThrows(CompletionException.class, () -> Pipeline.await(dependant));
+            assertInstanceOf(IllegalStateException.class, exception.getCause());
+            assertThrows(CompletionException.class, Pipeline::join);
+        }).run();
+
+        Pipeline.bind(new Pipeline(), () -> {
+            FloatMask mask = new FloatMask(SIZE, 0L, SYMMETRY_SETTINGS, "mask", true).add(1f).add(2f);
+            Pipeline.start();
+            Pipeline.join();
+            assertEquals(3f, mask.getFinalMask().get(0, 0));
+        }).run();
+    }
+
+    @Test
+    public void TestAwaitAfterJoinRunsSkippedEntries() {
+        Pipeline pipeline = new Pipeline();
+        FloatMask[] masks = new FloatMask[2];
+        Pipeline.bind(pipeline, () -> {
+            masks[0] = new FloatMask(SIZE, 0L, SYMMETRY_SETTINGS, "first", true).add(1f);
+            masks[1] = new FloatMask(SIZE, 0L, SYMMETRY_SETTINGS, "second", true).add(1f);
+            // Alternating masks keep the entries from being fused so most are still pending when the pipeline joins
+            for (int i = 0; i < CHAIN_LENGTH; ++i) {
+                masks[0].add(masks[1]);
+                masks[1].add(masks[0]);
+            }
+            Pipeline.start(true);
+            Pipeline.join();
+        }).run();
+
+        float first = 1;
+        float second = 1;
+        for (int i = 0; i < CHAIN_LENGTH; ++i) {
+            first += second;
+            second += first;
+        }
+        float expected = second;
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> Pipeline.bind(pipeline, () -> assertEquals(
+                expected, masks[1].getFinalMask().get(SIZE / 2, SIZE / 2))).run());
+    }
+}
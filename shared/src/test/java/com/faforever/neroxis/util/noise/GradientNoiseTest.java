@@ -0,0 +1,91 @@
+package com.faforever.neroxis.util.noise;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Execution(ExecutionMode.CONCURRENT)
+public class GradientNoiseTest {
+    private static final int SAMPLE_COUNT = 20_000;
+    private static final float SAMPLE_RANGE = 512f;
+
+    @Test
+    public void TestSimplexNoiseDeterminism() {
+        assertSameValues(new SimplexNoise(1234)::getValue, new SimplexNoise(1234)::getValue);
+        assertFalse(hasSameValues(new SimplexNoise(1234)::getValue, new SimplexNoise(4321)::getValue));
+    }
+
+    @Test
+    public void TestSimplexNoiseRange() {
+        assertInRange(new SimplexNoise(1234)::getValue);
+    }
+
+    @Test
+    public void TestFractalNoiseDeterminism() {
+        FractalNoise noise = new FractalNoise(new SimplexNoise(1234), 5, 2f, .5f);
+        FractalNoise sameNoise = new FractalNoise(new SimplexNoise(1234), 5, 2f, .5f);
+        FractalNoise otherNoise = new FractalNoise(new SimplexNoise(4321), 5, 2f, .5f);
+        assertSameValues(noise::getValue, sameNoise::getValue);
+        assertSameValues((x, y) -> noise.getWarpedValue(x, y, 2f), (x, y) -> sameNoise.getWarpedValue(x, y, 2f));
+        assertFalse(hasSameValues(noise::getValue, otherNoise::getValue));
+    }
+
+    @Test
+    public void TestFractalNoiseRange() {
+        FractalNoise noise = new FractalNoise(new SimplexNoise(1234), 5, 2f, .5f);
+        assertInRange(noise::getValue);
+        assertInRange((x, y) -> noise.getWarpedValue(x, y, 2f));
+    }
+
+    @Test
+    public void TestSingleOctaveFractalNoiseMatchesBaseNoise() {
+        SimplexNoise baseNoise = new SimplexNoise(1234);
+        assertSameValues(new FractalNoise(baseNoise, 1, 2f, .5f)::getValue, baseNoise::getValue);
+    }
+
+    private void assertSameValues(NoiseFunction noise, NoiseFunction expectedNoise) {
+        Random random = new Random(0);
+        for (int i = 0; i < SAMPLE_COUNT; ++i) {
+            float x = (random.nextFloat() - .5f) * SAMPLE_RANGE;
+            float y = (random.nextFloat() - .5f) * SAMPLE_RANGE;
+            assertEquals(expectedNoise.getValue(x, y), noise.getValue(x, y), String.format("At %f, %f", x, y));
+        }
+    }
+
+    private boolean hasSameValues(NoiseFunction noise, NoiseFunction otherNoise) {
+        Random random = new Random(0);
+        for (int i = 0; i < SAMPLE_COUNT; ++i) {
+            float x = (random.nextFloat() - .5f) * SAMPLE_RANGE;
+            float y = (random.nextFloat() - .5f) * SAMPLE_RANGE;
+            if (noise.getValue(x, y) != otherNoise.getValue(x, y)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void assertInRange(NoiseFunction noise) {
+        Random random = new Random(0);
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < SAMPLE_COUNT; ++i) {
+            float x = (random.nextFloat() - .5f) * SAMPLE_RANGE;
+            float y = (random.nextFloat() - .5f) * SAMPLE_RANGE;
+            float value = noise.getValue(x, y);
+            assertTrue(value >= -1f && value <= 1f, String.format("%f at %f, %f is out of range", value, x, y));
+            min = StrictMath.min(min, value);
+            max = StrictMath.max(max, value);
+        }
+        assertTrue(max - min > .5f, String.format("Noise only spans %f to %f", min, max));
+    }
+
+    private interface NoiseFunction {
+        float getValue(float x, float y);
+    }
+}
@@ -0,0 +1,202 @@
+package com.faforever.neroxis.toolsuite;
+
+import com.dslplatform.json.CompiledJson;
+import com.faforever.neroxis.cli.DebugMixin;
+import com.faforever.neroxis.cli.VersionProvider;
+import com.faforever.neroxis.util.FileUtil;
+import lombok.Data;
+import picocli.CommandLine;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static picocli.CommandLine.Command;
+import static picocli.CommandLine.Option;
+import static picocli.CommandLine.Spec;
+
+@Command(name = "batch", mixinStandardHelpOptions = true, description = "Run the jobs listed in a manifest within a single process", versionProvider = VersionProvider.class, usageHelpAutoWidth = true)
+public class MapBatchRunner implements Callable<Integer> {
+    private static final String REPORT_HEADER = "job\tcommand\tmap\tstatus\texit code\tseconds\terror";
+    @Spec
+    private CommandLine.Model.CommandSpec spec;
+    @Option(names = "--manifest", required = true, description = """
+                                                                  File with one JSON job per line, ie:
+                                                                  {"mapPath": "maps/map1", "command": "resize", "options": ["--map-size", "512", "--scaled-size", "512"]}
+                                                                  Debug options are process wide and are rejected in job options
+                                                                  """)
+    private Path manifestPath;
+    @Option(names = "--report", defaultValue = "batch_report.tsv", description = "File to write the status of each job to")
+    private Path reportPath;
+    @Option(names = "--threads", description = "Number of jobs to run at once, defaults to the number of processors")
+    private Integer threads;
+
+    @Override
+    public Integer call() throws IOException {
+        Map<String, Class<?>> commands = getCommands();
+        List<Job> jobs = readManifest();
+        int poolSize = threads == null ? Runtime.getRuntime().availableProcessors() : threads;
+        if (poolSize < 1) {
+            throw new CommandLine.ParameterException(spec.commandLine(), "Threads must be positive");
+        }
+
+        long sTime = System.currentTimeMillis();
+        ExecutorService executorService = Executors.newFixedThreadPool(poolSize);
+        List<CompletableFuture<JobResult>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < jobs.size(); ++i) {
+                int index = i;
+                Job job = jobs.get(i);
+                futures.add(CompletableFuture.supplyAsync(() -> runJob(index, job, commands), executorService));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executorService.shutdown();
+        }
+
+        List<String> reportLines = new ArrayList<>();
+        reportLines.add(REPORT_HEADER);
+        int failures = 0;
+        for (CompletableFuture<JobResult> future : futures) {
+            JobResult result = future.join();
+            if (result.exitCode() != 0) {
+                failures++;
+            }
+            reportLines.add(result.toReportLine());
+        }
+        Path parent = reportPath.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.write(reportPath, reportLines, StandardCharsets.UTF_8);
+
+        System.out.printf("Completed %d of %d jobs in %.2f s, report written to %s%n", jobs.size() - failures,
+                          jobs.size(), (System.currentTimeMillis() - sTime) / 1000f, reportPath);
+        return failures == 0 ? 0 : 1;
+    }
+
+    private Map<String, Class<?>> getCommands() {
+        Map<String, Class<?>> commands = new LinkedHashMap<>();
+        Arrays.stream(MapToolSuite.class.getAnnotation(Command.class).subcommands())
+              .filter(commandClass -> !commandClass.equals(MapBatchRunner.class))
+              .forEach(commandClass -> commands.put(commandClass.getAnnotation(Command.class).name(), commandClass));
+        return commands;
+    }
+
+    private List<Job> readManifest() throws IOException {
+        List<Job> jobs = new ArrayList<>();
+        List<String> lines = Files.readAllLines(manifestPath, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); ++i) {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+            Job job;
+            try {
+                job = FileUtil.deserialize(new ByteArrayInputStream(line.getBytes(StandardCharsets.UTF_8)), Job.class);
+            } catch (IOException e) {
+                throw new CommandLine.ParameterException(spec.commandLine(),
+                                                         String.format("Malformed job on line %d of %s: %s", i + 1,
+                                                                       manifestPath, e.getMessage()));
+            }
+            if (job == null || job.getCommand() == null || job.getMapPath() == null) {
+                throw new CommandLine.ParameterException(spec.commandLine(),
+                                                         String.format("Job on line %d of %s needs a command and a map path",
+                                                                       i + 1, manifestPath));
+            }
+            jobs.add(job);
+        }
+        return jobs;
+    }
+
+    private JobResult runJob(int index, Job job, Map<String, Class<?>> commands) {
+        long sTime = System.currentTimeMillis();
+        Class<?> commandClass = commands.get(job.getCommand());
+        if (commandClass == null) {
+            return new JobResult(index, job, 2, 0, String.format("Unknown command `%s`", job.getCommand()));
+        }
+
+        List<String> args = new ArrayList<>();
+        args.add("--map-path");
+        args.add(job.getMapPath());
+        if (job.getOptions() != null) {
+            args.addAll(job.getOptions());
+        }
+
+        StringWriter errors = new StringWriter();
+        Throwable[] failure = new Throwable[1];
+        CommandLine commandLine = new CommandLine(commandClass);
+        commandLine.setAbbreviatedOptionsAllowed(true);
+        removeDebugOptions(commandLine.getCommandSpec());
+        commandLine.setErr(new PrintWriter(errors, true));
+        commandLine.setExecutionExceptionHandler((exception, exceptionCommandLine, parseResult) -> {
+            failure[0] = exception;
+            return exceptionCommandLine.getCommandSpec().exitCodeOnExecutionException();
+        });
+
+        System.out.printf("Starting job %d: %s on %s%n", index, job.getCommand(), job.getMapPath());
+        int exitCode;
+        try {
+            exitCode = commandLine.execute(args.toArray(String[]::new));
+        } catch (RuntimeException e) {
+            failure[0] = e;
+            exitCode = 1;
+        }
+
+        String error = null;
+        if (exitCode != 0) {
+            error = failure[0] != null ? failure[0].toString() : errors.toString().strip();
+        }
+        return new JobResult(index, job, exitCode, System.currentTimeMillis() - sTime, error);
+    }
+
+    /**
+     * Removes the {@link DebugMixin} options so a job cannot toggle the debug statics for every other job,
+     * passing them then fails the job as an unknown option
+     */
+    private void removeDebugOptions(CommandLine.Model.CommandSpec commandSpec) {
+        commandSpec.mixins()
+                   .values()
+                   .stream()
+                   .filter(mixin -> mixin.userObject() instanceof DebugMixin)
+                   .flatMap(mixin -> mixin.options().stream())
+                   .map(option -> commandSpec.findOption(option.longestName()))
+                   .filter(Objects::nonNull)
+                   .toList()
+                   .forEach(commandSpec::remove);
+    }
+
+    /**
+     * A single manifest entry, the map path is passed as {@code --map-path} ahead of the options
+     */
+    @Data
+    @CompiledJson
+    public static class Job {
+        private String mapPath;
+        private String command;
+        private List<String> options;
+    }
+
+    private record JobResult(int index, Job job, int exitCode, long duration, String error) {
+        private String toReportLine() {
+            String message = error == null || error.isEmpty() ? "" : error.lines().findFirst().orElse("");
+            return String.format("%d\t%s\t%s\t%s\t%d\t%.2f\t%s", index, job.getCommand(), job.getMapPath(),
+                                 exitCode == 0 ? "OK" : "FAILED", exitCode, duration / 1000f,
+                                 message.replace('\t', ' '));
+        }
+    }
+}
@@ -16,6 +16,7 @@ import com.faforever.neroxis.mask.FloatMask;
 import com.faforever.neroxis.mask.IntegerMask;
 import com.faforever.neroxis.mask.Mask;
 import com.faforever.neroxis.util.DebugUtil;
+import com.faforever.neroxis.util.NearestNeighborIndex;
 import com.faforever.neroxis.util.vector.Vector2;
 import com.faforever.neroxis.util.vector.Vector3;
 import picocli.CommandLine;
@@ -23,10 +24,17 @@ import picocli.CommandLine;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import static picocli.CommandLine.Command;
@@ -36,19 +44,11 @@ import static picocli.CommandLine.Spec;
 
 @Command(name = "evaluate", mixinStandardHelpOptions = true, description = "Evaluates a map's symmetry error. Higher values represent greater asymmetry", versionProvider = VersionProvider.class, usageHelpAutoWidth = true)
 public class MapEvaluator implements Callable<Integer> {
-    float terrainScore;
-    float spawnScore;
-    float propScore;
-    float mexScore;
-    float hydroScore;
-    float unitScore;
-    boolean oddVsEven;
     @Spec
     private CommandLine.Model.CommandSpec spec;
     @Mixin
     private RequiredMapPathMixin requiredMapPathMixin;
     private SCMap map;
-    private FloatMask heightMask;
 
     private static <T extends Mask<?, T>> float getMaskScore(T mask) {
         String visualName = "diff" + mask.getVisualName();
@@ -79,30 +79,67 @@ public class MapEvaluator implements Callable<Integer> {
         }
 
         float locationScore = 0f;
+        float maxDist = (float) StrictMath.sqrt(mask.getSize() * mask.getSize());
         List<Vector3> locations = objects.stream().map(PositionedObject::getPosition).collect(Collectors.toList());
         Set<Vector3> locationsSet = new HashSet<>(locations);
+        List<Vector3> distinctLocations = new ArrayList<>(locationsSet);
+        Map<Vector3, Integer> locationIndices = new HashMap<>();
+        for (int i = 0; i < distinctLocations.size(); ++i) {
+            locationIndices.put(distinctLocations.get(i), i);
+        }
+        NearestNeighborIndex<Vector3> locationIndex = new NearestNeighborIndex<>(distinctLocations, Vector3::getX,
+                                                                                  Vector3::getZ);
+        boolean firstLocation = true;
         while (locationsSet.size() > 0) {
-            Vector3 location = locations.remove(0);
+            Vector3 location = firstLocation ? locations.get(0) : locationsSet.iterator().next();
             Vector2 symmetryPoint = mask.getSymmetryPointsWithOutOfBounds(location, SymmetryType.SPAWN).get(0);
-            Vector3 closestLoc = null;
-            float minDist = (float) StrictMath.sqrt(mask.getSize() * mask.getSize());
-            for (Vector3 other : locations) {
-                float dist = other.getXZDistance(symmetryPoint);
-                if (dist < minDist) {
-                    closestLoc = other;
-                    minDist = dist;
+            locationIndex.remove(locationIndices.get(location));
+            Vector3 closestLoc;
+            if (firstLocation) {
+                // The first location is matched against every other listed location, duplicates included
+                closestLoc = getClosestLocation(locations.subList(1, locations.size()), null, symmetryPoint, maxDist);
+            } else {
+                int[] closestIndices = locationIndex.nearest(symmetryPoint.getX(), symmetryPoint.getY(), 2, maxDist);
+                closestLoc = closestIndices.length > 0 ? distinctLocations.get(closestIndices[0]) : null;
+                Vector3 runnerUpLoc = closestIndices.length > 1 ? distinctLocations.get(closestIndices[1]) : null;
+                if (runnerUpLoc != null
+                    && closestLoc.getXZDistance(symmetryPoint) == runnerUpLoc.getXZDistance(symmetryPoint)) {
+                    // Equally close locations are resolved by the iteration order of the remaining locations
+                    closestLoc = getClosestLocation(locationsSet, location, symmetryPoint, maxDist);
                 }
             }
+            float minDist = closestLoc != null ? closestLoc.getXZDistance(symmetryPoint) : maxDist;
             locationsSet.remove(location);
             if (closestLoc != null) {
                 locationsSet.remove(closestLoc);
+                int closestIndex = locationIndices.get(closestLoc);
+                if (!locationIndex.isRemoved(closestIndex)) {
+                    locationIndex.remove(closestIndex);
+                }
             }
             locationScore += minDist;
-            locations = new ArrayList<>(locationsSet);
+            firstLocation = false;
         }
         return locationScore / (objects.size() / 2f);
     }
 
+    private static Vector3 getClosestLocation(Collection<Vector3> locations, Vector3 excludedLocation,
+                                              Vector2 symmetryPoint, float maxDist) {
+        Vector3 closestLoc = null;
+        float minDist = maxDist;
+        for (Vector3 other : locations) {
+            if (other.equals(excludedLocation)) {
+                continue;
+            }
+            float dist = other.getXZDistance(symmetryPoint);
+            if (dist < minDist) {
+                closestLoc = other;
+                minDist = dist;
+            }
+        }
+        return closestLoc;
+    }
+
     private static boolean checkSpawnsOddEven(List<Spawn> spawns, Mask<?, ?> mask) {
         for (Spawn spawn : spawns) {
             Spawn closestSpawn = null;
@@ -162,66 +199,94 @@ public class MapEvaluator implements Callable<Integer> {
         List<Symmetry> symmetries = Arrays.stream(Symmetry.values())
                                           .filter(symmetry -> symmetry.getNumSymPoints() == 2)
                                           .collect(Collectors.toList());
-        for (Symmetry symmetry : symmetries) {
-            SymmetrySettings symmetrySettings = new SymmetrySettings(symmetry);
-            heightMask = new FloatMask(map.getHeightmap(), null, symmetrySettings, map.getHeightMapScale(),
-                                       "heightMask");
-            evaluateTerrain();
-            evaluateSpawns();
-            evaluateMexes();
-            evaluateHydros();
-            evaluateProps();
-            evaluateUnits();
-            System.out.println();
-            System.out.printf("Spawns Odd vs Even for Symmetry %s: %s%n", symmetry, oddVsEven);
-            System.out.printf("Terrain Difference for Symmetry %s: %.8f%n", symmetry, terrainScore);
-            System.out.printf("Spawn Difference for Symmetry %s: %.2f%n", symmetry, spawnScore);
-            System.out.printf("Mex Difference for Symmetry %s: %.2f%n", symmetry, mexScore);
-            System.out.printf("Hydro Difference for Symmetry %s: %.2f%n", symmetry, hydroScore);
-            System.out.printf("Prop Difference for Symmetry %s: %.2f%n", symmetry, propScore);
-            System.out.printf("Unit Difference for Symmetry %s: %.2f%n", symmetry, unitScore);
+        FloatMask sourceHeightMask = new FloatMask(map.getHeightmap(), null, new SymmetrySettings(Symmetry.NONE),
+                                                   map.getHeightMapScale(), "heightMask");
+        ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            List<CompletableFuture<SymmetryEvaluation>> evaluations = symmetries.stream()
+                                                                                .map(symmetry -> evaluateSymmetry(
+                                                                                        symmetry, sourceHeightMask,
+                                                                                        executorService))
+                                                                                .toList();
+            evaluations.stream().map(CompletableFuture::join).forEach(this::printEvaluation);
+        } finally {
+            executorService.shutdown();
         }
     }
 
-    private void evaluateTerrain() {
-        DebugUtil.timedRun("evaluateTerrain", () -> terrainScore = getMaskScore(heightMask));
+    /**
+     * Schedules the terrain and object scores for the symmetry as independent tasks on the executor. The source
+     * height mask is only read so it can be shared by every symmetry
+     */
+    private CompletableFuture<SymmetryEvaluation> evaluateSymmetry(Symmetry symmetry, FloatMask sourceHeightMask,
+                                                                   Executor executor) {
+        CompletableFuture<FloatMask> heightMaskFuture = CompletableFuture.supplyAsync(
+                () -> new FloatMask(sourceHeightMask.getSize(), null, new SymmetrySettings(symmetry),
+                                    "heightMask").init(sourceHeightMask), executor);
+        CompletableFuture<Float> terrainScore = heightMaskFuture.thenApplyAsync(
+                heightMask -> DebugUtil.timedRun("evaluateTerrain", () -> getMaskScore(heightMask)), executor);
+        CompletableFuture<Float> spawnScore = heightMaskFuture.thenApplyAsync(
+                heightMask -> DebugUtil.timedRun("evaluateSpawns",
+                                                 () -> getPositionedObjectScore(map.getSpawns(), heightMask)),
+                executor);
+        CompletableFuture<Boolean> oddVsEven = heightMaskFuture.thenApplyAsync(
+                heightMask -> checkSpawnsOddEven(map.getSpawns(), heightMask), executor);
+        CompletableFuture<Float> mexScore = heightMaskFuture.thenApplyAsync(
+                heightMask -> DebugUtil.timedRun("evaluateMexes",
+                                                 () -> getPositionedObjectScore(map.getMexes(), heightMask)),
+                executor);
+        CompletableFuture<Float> hydroScore = heightMaskFuture.thenApplyAsync(
+                heightMask -> DebugUtil.timedRun("evaluateHydros",
+                                                 () -> getPositionedObjectScore(map.getHydros(), heightMask)),
+                executor);
+        CompletableFuture<Float> propScore = heightMaskFuture.thenApplyAsync(
+                heightMask -> DebugUtil.timedRun("evaluateProps", () -> getPropScore(heightMask)), executor);
+        CompletableFuture<Float> unitScore = heightMaskFuture.thenApplyAsync(
+                heightMask -> DebugUtil.timedRun("evaluateUnits", () -> getUnitScore(heightMask)), executor);
+        return CompletableFuture.allOf(terrainScore, spawnScore, oddVsEven, mexScore, hydroScore, propScore,
+                                       unitScore)
+                                .thenApply(aVoid -> new SymmetryEvaluation(symmetry, oddVsEven.join(),
+                                                                           terrainScore.join(), spawnScore.join(),
+                                                                           mexScore.join(), hydroScore.join(),
+                                                                           propScore.join(), unitScore.join()));
     }
 
-    private void evaluateSpawns() {
-        DebugUtil.timedRun("evaluateSpawns", () -> {
-            spawnScore = getPositionedObjectScore(map.getSpawns(), heightMask);
-            oddVsEven = checkSpawnsOddEven(map.getSpawns(), heightMask);
-        });
+    private void printEvaluation(SymmetryEvaluation evaluation) {
+        Symmetry symmetry = evaluation.symmetry();
+        System.out.println();
+        System.out.printf("Spawns Odd vs Even for Symmetry %s: %s%n", symmetry, evaluation.oddVsEven());
+        System.out.printf("Terrain Difference for Symmetry %s: %.8f%n", symmetry, evaluation.terrainScore());
+        System.out.printf("Spawn Difference for Symmetry %s: %.2f%n", symmetry, evaluation.spawnScore());
+        System.out.printf("Mex Difference for Symmetry %s: %.2f%n", symmetry, evaluation.mexScore());
+        System.out.printf("Hydro Difference for Symmetry %s: %.2f%n", symmetry, evaluation.hydroScore());
+        System.out.printf("Prop Difference for Symmetry %s: %.2f%n", symmetry, evaluation.propScore());
+        System.out.printf("Unit Difference for Symmetry %s: %.2f%n", symmetry, evaluation.unitScore());
     }
 
-    private void evaluateMexes() {
-        DebugUtil.timedRun("evaluateMexes", () -> mexScore = getPositionedObjectScore(map.getMexes(), heightMask));
+    private float getPropScore(FloatMask heightMask) {
+        return (float) map.getProps()
+                          .stream()
+                          .collect(Collectors.groupingBy(Prop::getPath))
+                          .values()
+                          .stream()
+                          .mapToDouble(props -> getPositionedObjectScore(props, heightMask))
+                          .sum();
     }
 
-    private void evaluateHydros() {
-        DebugUtil.timedRun("evaluateHydros", () -> hydroScore = getPositionedObjectScore(map.getHydros(), heightMask));
+    private float getUnitScore(FloatMask heightMask) {
+        return (float) map.getArmies()
+                          .stream()
+                          .flatMap(army -> army.getGroups()
+                                               .stream()
+                                               .flatMap(group -> group.getUnits()
+                                                                      .stream()
+                                                                      .collect(Collectors.groupingBy(Unit::getType))
+                                                                      .values()
+                                                                      .stream()))
+                          .mapToDouble(units -> getPositionedObjectScore(units, heightMask))
+                          .sum();
     }
 
-    private void evaluateProps() {
-        DebugUtil.timedRun("evaluateProps", () -> propScore = (float) map.getProps()
-                                                                         .stream()
-                                                                         .collect(Collectors.groupingBy(Prop::getPath))
-                                                                         .values()
-                                                                         .stream()
-                                                                         .mapToDouble(props -> getPositionedObjectScore(props, heightMask))
-                                                                         .sum());
-    }
-
-    private void evaluateUnits() {
-        DebugUtil.timedRun("evaluateUnits", () -> unitScore = (float) map.getArmies().stream()
-                                                                         .flatMap(army -> army.getGroups()
-                                                                                              .stream()
-                                                                                              .flatMap(group -> group.getUnits()
-                                                                                                                     .stream()
-                                                                                                                     .collect(Collectors.groupingBy(Unit::getType))
-                                                                                                                     .values()
-                                                                                                                     .stream()))
-                                                                         .mapToDouble(units -> getPositionedObjectScore(units, heightMask))
-                                                                         .sum());
-    }
+    private record SymmetryEvaluation(Symmetry symmetry, boolean oddVsEven, float terrainScore, float spawnScore,
+                                      float mexScore, float hydroScore, float propScore, float unitScore) {}
 }
@@ -22,6 +22,7 @@ import com.faforever.neroxis.map.Unit;
 import com.faforever.neroxis.map.WaveGenerator;
 import com.faforever.neroxis.mask.IntegerMask;
 import com.faforever.neroxis.toolsuite.cli.SourceCompletionCandidates;
+import com.faforever.neroxis.util.NearestNeighborIndex;
 import com.faforever.neroxis.util.vector.Vector2;
 import com.faforever.neroxis.util.vector.Vector3;
 
@@ -221,17 +222,17 @@ public class MapForcer implements Callable<Integer> {
 
     private void matchToClosestMarkers(Collection<? extends Marker> sourceMarkers,
                                        Collection<? extends Marker> destMarkers) {
-        List<Marker> sourceMarkersCopy = new ArrayList<>(sourceMarkers);
+        NearestNeighborIndex<Marker> sourceIndex = new NearestNeighborIndex<>(new ArrayList<>(sourceMarkers),
+                                                                               marker -> marker.getPosition().getX(),
+                                                                               marker -> marker.getPosition().getZ());
         for (Marker destMarker : destMarkers) {
-            Marker matchingMarker = sourceMarkersCopy.stream()
-                                                     .min(Comparator.comparingDouble(
-                                                             sourceMarker -> sourceMarker.getPosition()
-                                                                                         .getXZDistance(
-                                                                                                 destMarker.getPosition())))
-                                                     .orElseThrow(() -> new IndexOutOfBoundsException(
-                                                             "List sizes are different"));
-            sourceMarkersCopy.remove(matchingMarker);
-            destMarker.setId(matchingMarker.getId());
+            Vector3 destPosition = destMarker.getPosition();
+            int matchingIndex = sourceIndex.nearest(destPosition.getX(), destPosition.getZ());
+            if (matchingIndex == -1) {
+                throw new IndexOutOfBoundsException("List sizes are different");
+            }
+            sourceIndex.remove(matchingIndex);
+            destMarker.setId(sourceIndex.get(matchingIndex).getId());
         }
     }
 
@@ -5,7 +5,7 @@ import picocli.CommandLine;
 
 import static picocli.CommandLine.Command;
 
-@Command(name = "maptools", mixinStandardHelpOptions = true, description = "Tools to modify maps", versionProvider = VersionProvider.class, usageHelpAutoWidth = true, synopsisSubcommandLabel = "COMMAND", subcommands = {MapPopulator.class, MapResizer.class, MapForcer.class, MapEvaluator.class})
+@Command(name = "maptools", mixinStandardHelpOptions = true, description = "Tools to modify maps", versionProvider = VersionProvider.class, usageHelpAutoWidth = true, synopsisSubcommandLabel = "COMMAND", subcommands = {MapPopulator.class, MapResizer.class, MapForcer.class, MapEvaluator.class, MapBatchRunner.class})
 public class MapToolSuite {
     private MapToolSuite() {
     }